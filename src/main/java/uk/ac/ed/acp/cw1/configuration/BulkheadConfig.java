@@ -0,0 +1,55 @@
+package uk.ac.ed.acp.cw1.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Splits the controller's endpoints into two bulkheads:
+ * endpoints that call the ILP REST service, and the pure geometry endpoints that never leave the process
+ * only registered with ilp.bulkhead.enabled, which follows the virtual thread mode unless set,
+ * on the Tomcat pool requests already queue for a thread instead
+ */
+@Configuration
+@ConditionalOnProperty(name = "ilp.bulkhead.enabled", havingValue = "true")
+public class BulkheadConfig implements WebMvcConfigurer {
+
+    private static final String[] UPSTREAM_ENDPOINTS = {
+            "/api/v1/dronesWithCooling/**",
+            "/api/v1/droneDetails/**",
+            "/api/v1/queryAsPath/**",
+            "/api/v1/query",
+            "/api/v1/queryAvailableDrones",
+            "/api/v1/calcDeliveryPath",
+            "/api/v1/calcDeliveryPathAsGeoJson",
+            "/api/v1/testPathWithObstacles",
+            "/api/v1/restrictedAreas"
+    };
+
+    private static final String[] GEOMETRY_ENDPOINTS = {
+            "/api/v1/distanceTo",
+            "/api/v1/isCloseTo",
+            "/api/v1/nextPosition",
+            "/api/v1/isInRegion"
+    };
+
+    @Value("${ilp.bulkhead.upstream.max-concurrent:32}")
+    private int upstreamMaxConcurrent;
+
+    //no fewer than the servlet pool has threads, so the bulkhead never caps the geometry endpoints below the pool
+    @Value("${ilp.bulkhead.geometry.max-concurrent:${server.tomcat.threads.max:200}}")
+    private int geometryMaxConcurrent;
+
+    @Value("${ilp.bulkhead.max-wait-ms:100}")
+    private long maxWaitMillis;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new BulkheadInterceptor("upstream", upstreamMaxConcurrent, maxWaitMillis))
+                .addPathPatterns(UPSTREAM_ENDPOINTS);
+        registry.addInterceptor(new BulkheadInterceptor("geometry", geometryMaxConcurrent, maxWaitMillis))
+                .addPathPatterns(GEOMETRY_ENDPOINTS);
+    }
+}
@@ -0,0 +1,62 @@
+package uk.ac.ed.acp.cw1.configuration;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how many requests to a group of endpoints run at once
+ * a request that can't get a permit within the wait time is answered with 503 instead of queueing,
+ * so a slow upstream can only tie up the upstream bulkhead and the geometry endpoints keep their own capacity
+ */
+public class BulkheadInterceptor implements HandlerInterceptor {
+    private static final Logger logger = LoggerFactory.getLogger(BulkheadInterceptor.class);
+
+    private final String name;
+    private final Semaphore permits;
+    private final long maxWaitMillis;
+    //request attribute marking that this bulkhead gave the request a permit
+    private final String permitAttribute;
+
+    public BulkheadInterceptor(String name, int maxConcurrent, long maxWaitMillis) {
+        this.name = name;
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxWaitMillis = maxWaitMillis;
+        this.permitAttribute = BulkheadInterceptor.class.getName() + "." + name;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+            request.setAttribute(permitAttribute, Boolean.TRUE);
+            return true;
+        }
+        logger.warn("bulkhead " + name + " full, rejecting " + request.getRequestURI());
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(permitAttribute) != null) {
+            request.removeAttribute(permitAttribute);
+            permits.release();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+}
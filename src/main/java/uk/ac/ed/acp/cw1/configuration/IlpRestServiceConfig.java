@@ -1,15 +1,21 @@
 package uk.ac.ed.acp.cw1.configuration;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 
-import java.time.Duration;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Configuration
 @EnableScheduling
+@EnableConfigurationProperties({UpstreamClientProperties.class, PlanningProperties.class})
 public class IlpRestServiceConfig {
 @Bean
     public String ilpEndpoint(){
@@ -20,12 +26,58 @@ public class IlpRestServiceConfig {
     return endpoint;
 }
 
+    /**
+     * runs the work a delivery plan is split into concurrently, one virtual thread per task,
+     * closed with the context so no planning task outlives the application
+     * planning tasks wait on other tasks they submit, so this must not be swapped for a bounded pool
+     * @return the executor
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService planningExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * one JDK HttpClient shared by every upstream call, it keeps a pool of connections to the upstream
+     * only the timeouts and protocol are configured here, the pool is sized by the JDK system properties
+     * jdk.httpclient.connectionPoolSize and jdk.httpclient.keepalive.timeout, which have to be passed as JVM flags
+     * @param properties upstream client settings
+     * @return the client
+     */
+    @Bean
+    public HttpClient upstreamHttpClient(UpstreamClientProperties properties) {
+        return HttpClient.newBuilder()
+                .version(properties.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(properties.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * the client used for every upstream call
+     * with ilp.replay.dir set the responses come from recorded files and the network is never used,
+     * with ilp.record.dir set every live response is also saved there in the replay format
+     */
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder) {
-    return builder
-            .connectTimeout(Duration.ofSeconds(60))
-            .readTimeout(Duration.ofSeconds(60))
-            .build();
+    public RestTemplate restTemplate(RestTemplateBuilder builder, HttpClient upstreamHttpClient, UpstreamClientProperties properties,
+                                     @Value("${ilp.replay.dir:}") String replayDir,
+                                     @Value("${ilp.record.dir:}") String recordDir) {
+    if (!replayDir.isBlank()) {
+        return builder
+                .requestFactory(() -> new ReplayClientHttpRequestFactory(Path.of(replayDir)))
+                .build();
+    }
+    RestTemplateBuilder configured = builder
+            .requestFactory(() -> new PerEndpointTimeoutRequestFactory(
+                    upstreamHttpClient, properties.getReadTimeout(), properties.getReadTimeouts()));
+    // the recorder runs outside the gzip interceptor so it saves the decompressed body
+    if (!recordDir.isBlank()) {
+        configured = configured.additionalInterceptors(new RecordingInterceptor(Path.of(recordDir)));
+    }
+    if (properties.isCompression()) {
+        configured = configured.additionalInterceptors(new GzipResponseInterceptor());
+    }
+    return configured.build();
     }
 
 }
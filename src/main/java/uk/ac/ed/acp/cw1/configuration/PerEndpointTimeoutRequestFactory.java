@@ -0,0 +1,57 @@
+package uk.ac.ed.acp.cw1.configuration;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Request factory that applies a different read timeout per upstream endpoint
+ * every endpoint gets its own {@link JdkClientHttpRequestFactory}, all sharing one {@link HttpClient}
+ * so they also share its connection pool
+ */
+public class PerEndpointTimeoutRequestFactory implements ClientHttpRequestFactory {
+
+    private final JdkClientHttpRequestFactory defaultFactory;
+    private final Map<String, JdkClientHttpRequestFactory> endpointFactories = new LinkedHashMap<>();
+
+    /**
+     * @param httpClient the shared client
+     * @param readTimeout timeout for endpoints without their own
+     * @param readTimeouts timeouts keyed by the end of the request path
+     */
+    public PerEndpointTimeoutRequestFactory(HttpClient httpClient, Duration readTimeout, Map<String, Duration> readTimeouts) {
+        this.defaultFactory = factory(httpClient, readTimeout);
+        // longest path first, so /drones-for-service-points isn't taken by /service-points
+        readTimeouts.entrySet().stream()
+                .sorted(Comparator.comparingInt((Map.Entry<String, Duration> e) -> e.getKey().length()).reversed())
+                .forEach(e -> endpointFactories.put(e.getKey(), factory(httpClient, e.getValue())));
+    }
+
+    private static JdkClientHttpRequestFactory factory(HttpClient httpClient, Duration readTimeout) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(readTimeout);
+        return factory;
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        String path = uri.getPath();
+        if (path != null) {
+            for (Map.Entry<String, JdkClientHttpRequestFactory> entry : endpointFactories.entrySet()) {
+                if (path.endsWith(entry.getKey())) {
+                    return entry.getValue().createRequest(uri, httpMethod);
+                }
+            }
+        }
+        return defaultFactory.createRequest(uri, httpMethod);
+    }
+}
@@ -0,0 +1,110 @@
+package uk.ac.ed.acp.cw1.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Search budgets, route limits and flight timing of the delivery planner, bound from ilp.planning
+ * the budgets and limits can be overridden for a single endpoint under ilp.planning.endpoints.[name],
+ * e.g. a batch deployment can give calcDeliveryPath more A* iterations than an interactive one
+ */
+@Data
+@ConfigurationProperties(prefix = "ilp.planning")
+public class PlanningProperties {
+    //hard cap on the nodes one A* leg search may expand
+    private int astarMaxIterations = 50000;
+    //adaptive A* cap, iterations allowed per move of the drone's maxMoves, 0 to always use astarMaxIterations
+    private int astarIterationsPerMove = 50;
+    //the adaptive cap never goes below this
+    private int astarMinIterations = 5000;
+    //cap on the steps of the greedy fallback, also never more than the drone's maxMoves can use
+    private int greedyMaxSteps = 10000;
+    //the local planner gives up after this many times the straight line moves, plus the slack
+    private double localPlannerStepFactor = 3.0;
+    private int localPlannerStepSlack = 500;
+    //the route builder never puts more deliveries than this on one drone
+    private int maxDeliveriesPerDrone = 3;
+    //share of maxMoves the straight line estimate of a route may use, leaves room for detours
+    private double moveSafetyFactor = 0.9;
+    //flight time of one move, converts a sortie's moves into how long the drone is away when scheduling sorties
+    private Duration moveDuration = Duration.ofSeconds(1);
+    //time at the service point between a drone landing and taking off on its next sortie
+    private Duration sortieTurnaround = Duration.ofMinutes(5);
+    //overrides keyed by endpoint name (calcDeliveryPath, calcDeliveryPathAsGeoJson), unset values keep the defaults
+    private Map<String, Overrides> endpoints = new HashMap<>();
+
+    /**
+     * @param endpoint endpoint name, e.g. calcDeliveryPath
+     * @return the limits for the endpoint, the defaults with its overrides applied
+     */
+    public PlanningLimits limitsFor(String endpoint) {
+        Overrides overrides = endpoints.getOrDefault(endpoint, new Overrides());
+        return new PlanningLimits(
+                pick(overrides.astarMaxIterations, astarMaxIterations),
+                pick(overrides.astarIterationsPerMove, astarIterationsPerMove),
+                pick(overrides.astarMinIterations, astarMinIterations),
+                pick(overrides.greedyMaxSteps, greedyMaxSteps),
+                pick(overrides.localPlannerStepFactor, localPlannerStepFactor),
+                pick(overrides.localPlannerStepSlack, localPlannerStepSlack),
+                pick(overrides.maxDeliveriesPerDrone, maxDeliveriesPerDrone),
+                pick(overrides.moveSafetyFactor, moveSafetyFactor));
+    }
+
+    private static <T> T pick(T override, T fallback) {
+        return override != null ? override : fallback;
+    }
+
+    /**
+     * per endpoint settings, null keeps the default
+     */
+    @Data
+    public static class Overrides {
+        private Integer astarMaxIterations;
+        private Integer astarIterationsPerMove;
+        private Integer astarMinIterations;
+        private Integer greedyMaxSteps;
+        private Double localPlannerStepFactor;
+        private Integer localPlannerStepSlack;
+        private Integer maxDeliveriesPerDrone;
+        private Double moveSafetyFactor;
+    }
+
+    /**
+     * the settings one planning request runs with
+     */
+    public record PlanningLimits(int astarMaxIterations, int astarIterationsPerMove, int astarMinIterations,
+                                 int greedyMaxSteps, double localPlannerStepFactor, int localPlannerStepSlack,
+                                 int maxDeliveriesPerDrone, double moveSafetyFactor) {
+
+        /**
+         * A* iterations for a drone, scaled with its maxMoves between the minimum and the hard cap,
+         * a drone with few moves only flies short legs so a long search would be wasted on it
+         * @param maxMoves the drone's maxMoves, null when unknown
+         * @return the iteration cap
+         */
+        public int astarIterationsFor(Integer maxMoves) {
+            if (astarIterationsPerMove <= 0 || maxMoves == null) {
+                return astarMaxIterations;
+            }
+            long scaled = (long) maxMoves * astarIterationsPerMove;
+            return (int) Math.min(astarMaxIterations, Math.max(astarMinIterations, scaled));
+        }
+
+        /**
+         * greedy steps for a drone, a greedy path longer than maxMoves is rejected anyway so walking further is wasted
+         * the cap still leaves one move more than maxMoves, so a path that runs out is over budget and never accepted
+         * @param maxMoves the drone's maxMoves, null when unknown
+         * @return the step cap, counted in positions like the greedy search does
+         */
+        public int greedyStepsFor(Integer maxMoves) {
+            if (maxMoves == null) {
+                return greedyMaxSteps;
+            }
+            return (int) Math.min(greedyMaxSteps, (long) maxMoves + 2);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package uk.ac.ed.acp.cw1.configuration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Saves every successful upstream GET response body, byte for byte, in the format the
+ * {@link ReplayClientHttpRequestFactory} replays, so a live dataset can be captured and served offline later
+ */
+public class RecordingInterceptor implements ClientHttpRequestInterceptor {
+    private static final Logger logger = LoggerFactory.getLogger(RecordingInterceptor.class);
+
+    private final Path directory;
+
+    public RecordingInterceptor(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        ClientHttpResponse response = execution.execute(request, body);
+        if (request.getMethod() != HttpMethod.GET || !response.getStatusCode().is2xxSuccessful()) {
+            return response;
+        }
+
+        byte[] recorded = response.getBody().readAllBytes();
+        try {
+            record(ReplayClientHttpRequestFactory.fileName(request.getURI()), recorded);
+        } catch (IOException e) {
+            logger.warn("could not record " + request.getURI() + ": " + e.getMessage());
+        }
+        return new RecordedResponse(response, recorded);
+    }
+
+    //written next to the recording and moved over it, so a replay never reads a half written file
+    private void record(String fileName, byte[] recorded) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, fileName, ".tmp");
+        try {
+            Files.write(temp, recorded);
+            Files.move(temp, directory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * the upstream response with its body already read into memory
+     */
+    private static class RecordedResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final byte[] body;
+
+        RecordedResponse(ClientHttpResponse delegate, byte[] body) {
+            this.delegate = delegate;
+            this.body = body;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package uk.ac.ed.acp.cw1.configuration;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.AbstractClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Request factory that answers upstream requests from recorded JSON files instead of the network
+ * GET /drones-for-service-points is answered with drones-for-service-points.json from the replay directory,
+ * anything without a recording gets a 404, the files are written by the {@link RecordingInterceptor}
+ */
+public class ReplayClientHttpRequestFactory implements ClientHttpRequestFactory {
+
+    private final Path directory;
+
+    public ReplayClientHttpRequestFactory(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param uri request uri
+     * @return the recording file for the uri's path, e.g. /drones becomes drones.json
+     */
+    public static String fileName(URI uri) {
+        String path = uri.getPath() == null ? "" : uri.getPath();
+        String name = path.replaceAll("^/+|/+$", "").replace('/', '_');
+        return (name.isEmpty() ? "index" : name) + ".json";
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+        return new ReplayRequest(uri, httpMethod, directory.resolve(fileName(uri)));
+    }
+
+    private static class ReplayRequest extends AbstractClientHttpRequest {
+        private final URI uri;
+        private final HttpMethod method;
+        private final Path file;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        ReplayRequest(URI uri, HttpMethod method, Path file) {
+            this.uri = uri;
+            this.method = method;
+            this.file = file;
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return method;
+        }
+
+        @Override
+        public URI getURI() {
+            return uri;
+        }
+
+        @Override
+        protected OutputStream getBodyInternal(HttpHeaders headers) {
+            return body;
+        }
+
+        @Override
+        protected ClientHttpResponse executeInternal(HttpHeaders headers) throws IOException {
+            if (method != HttpMethod.GET || !Files.isRegularFile(file)) {
+                return new ReplayResponse(HttpStatus.NOT_FOUND, new byte[0]);
+            }
+            return new ReplayResponse(HttpStatus.OK, Files.readAllBytes(file));
+        }
+    }
+
+    private static class ReplayResponse implements ClientHttpResponse {
+        private final HttpStatus status;
+        private final byte[] body;
+        private final HttpHeaders headers = new HttpHeaders();
+
+        ReplayResponse(HttpStatus status, byte[] body) {
+            this.status = status;
+            this.body = body;
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.setContentLength(body.length);
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return status;
+        }
+
+        @Override
+        public String getStatusText() {
+            return status.getReasonPhrase();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
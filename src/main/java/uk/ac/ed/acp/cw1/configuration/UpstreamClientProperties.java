@@ -0,0 +1,26 @@
+package uk.ac.ed.acp.cw1.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings for the HTTP client used to call the ILP REST service, bound from ilp.http
+ */
+@Data
+@ConfigurationProperties(prefix = "ilp.http")
+public class UpstreamClientProperties {
+    //time allowed to open a connection
+    private Duration connectTimeout = Duration.ofSeconds(3);
+    //time allowed for a response when the endpoint has no timeout of its own
+    private Duration readTimeout = Duration.ofSeconds(10);
+    //read timeouts for single endpoints, keyed by the end of the path e.g. /drones
+    private Map<String, Duration> readTimeouts = new HashMap<>();
+    //negotiate HTTP/2 where the upstream supports it, HTTP/1.1 otherwise
+    private boolean http2 = true;
+    //ask for gzip responses and decompress them
+    private boolean compression = true;
+}
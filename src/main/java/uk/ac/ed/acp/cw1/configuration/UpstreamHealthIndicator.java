@@ -0,0 +1,27 @@
+package uk.ac.ed.acp.cw1.configuration;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+import uk.ac.ed.acp.cw1.service.ExternalAPIService;
+
+/**
+ * Reports the circuit breaker state and staleness of each upstream dataset under /actuator/health
+ * the service keeps answering from its last good data while the upstream is down, so this never reports DOWN
+ */
+@Component("upstream")
+public class UpstreamHealthIndicator implements HealthIndicator {
+
+    private final ExternalAPIService externalAPIService;
+
+    public UpstreamHealthIndicator(ExternalAPIService externalAPIService) {
+        this.externalAPIService = externalAPIService;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = Health.up();
+        externalAPIService.getDatasetStatus().forEach(builder::withDetail);
+        return builder.build();
+    }
+}
@@ -134,6 +134,19 @@ public class ServiceController {
         return ResponseEntity.ok(pathfindingService.calcDeliveryPath(dispatches));
     }
 
+    /**
+     * calcDeliveryPath with the X-Plan-Trace header, any value other than false adds a trace of
+     * the planning stages, legs and rejected routes to the response
+     * @param dispatches
+     * @param trace the header value
+     * @return the delivery path response, with its trace
+     */
+    @PostMapping(value = "/calcDeliveryPath", headers = "X-Plan-Trace")
+    public ResponseEntity<?> calcDeliveryPathWithTrace(@RequestBody List<MedDispatchRec> dispatches,
+                                                       @RequestHeader("X-Plan-Trace") String trace){
+        return ResponseEntity.ok(pathfindingService.calcDeliveryPath(dispatches, !trace.equalsIgnoreCase("false")));
+    }
+
     @PostMapping("/calcDeliveryPathAsGeoJson")
     public ResponseEntity<?> calcDeliveryPathAsGeoJson(@RequestBody List<MedDispatchRec> dispatches){
         return ResponseEntity.ok(pathfindingService.calcDeliveryPathAsGeoJson(dispatches));
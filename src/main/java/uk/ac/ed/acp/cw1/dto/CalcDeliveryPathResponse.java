@@ -1,5 +1,6 @@
 package uk.ac.ed.acp.cw1.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -14,4 +15,11 @@ public class CalcDeliveryPathResponse {
     private Integer totalMoves;
     //the individual paths that have been calculated
     private List<DronePath> dronePaths;
+    //only present when the request asked for a trace
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private PlanTrace trace;
+
+    public CalcDeliveryPathResponse(Double totalCost, Integer totalMoves, List<DronePath> dronePaths) {
+        this(totalCost, totalMoves, dronePaths, null);
+    }
 }
@@ -1,9 +1,11 @@
 package uk.ac.ed.acp.cw1.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
@@ -15,6 +17,13 @@ public class DronePath {
     private String droneId;
     //list of deliveries that are made on this path
     private List<Delivery> deliveries;
+    //when the sortie leaves and gets back to the service point, only present when sorties are scheduled
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private LocalDateTime takeOff;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private LocalDateTime landing;
 
-
+    public DronePath(String droneId, List<Delivery> deliveries) {
+        this(droneId, deliveries, null, null);
+    }
 }
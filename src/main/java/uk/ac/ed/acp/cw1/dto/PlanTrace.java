@@ -0,0 +1,55 @@
+package uk.ac.ed.acp.cw1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Breakdown of how a delivery plan was computed, returned with the {@link CalcDeliveryPathResponse}
+ * when the request carries the X-Plan-Trace header
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PlanTrace {
+    //wall clock time of each planning stage in milliseconds, in the order the stages first ran
+    private Map<String, Double> stageMillis;
+    private Integer legsComputed;
+    //A* nodes expanded over all legs
+    private Long nodesExpanded;
+    private List<LegTrace> legs;
+    private List<RejectedRoute> rejectedRoutes;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class LegTrace {
+        private String droneId;
+        //position of the leg in the drone's route, the last leg flies back to the service point
+        private Integer index;
+        //straight (no restricted areas), local (bug planner), astar, greedy (fallback after A* failed)
+        //or over-budget (no path can fit the drone's remaining moves, the route is rejected)
+        private String planner;
+        private Integer nodesExpanded;
+        private Integer moves;
+        private Double millis;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RejectedRoute {
+        private String droneId;
+        //the route that was rejected, empty when no route could be built
+        private List<Integer> dispatchIds;
+        //no-service-point, no-candidates, empty-route, over-move-budget, max-moves, max-cost, same-profile-failed,
+        //max-cost-bound (even the cheapest way around the restricted areas breaks maxCost, nothing was searched)
+        //or outside-slot (the sortie would land after the drone's availability slot ends)
+        private String reason;
+        private Integer moves;
+        private Double cost;
+    }
+}
@@ -0,0 +1,224 @@
+package uk.ac.ed.acp.cw1.service;
+
+import uk.ac.ed.acp.cw1.dto.Availability;
+import uk.ac.ed.acp.cw1.dto.DroneAvailability;
+import uk.ac.ed.acp.cw1.dto.DroneForServicePointResponse;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Index of drone availability windows built from the {@link DroneForServicePointResponse} list
+ * drones are numbered in the order they are first listed, and queries return a {@link BitSet} of those numbers
+ * used by the {@link DroneService} and {@link PathfindingService} instead of scanning every slot of every drone
+ * a drone listed under several service points keeps its first listing, like the service point lookup
+ */
+public class AvailabilityIndex {
+
+    //the index for the most recent assignments list, reused while the same list instance is passed in
+    private static final LatestCache<List<DroneForServicePointResponse>, AvailabilityIndex> LATEST = new LatestCache<>();
+
+    private final List<String> droneIds = new ArrayList<>();
+    private final Map<String, Integer> droneIndexes = new HashMap<>();
+    private final Map<DayOfWeek, DayIndex> days = new EnumMap<>(DayOfWeek.class);
+
+    private AvailabilityIndex(List<DroneForServicePointResponse> assignments) {
+        Map<DayOfWeek, List<long[]>> slotsByDay = new EnumMap<>(DayOfWeek.class);
+
+        for (DroneForServicePointResponse assignment : assignments) {
+            for (DroneAvailability droneAvailability : assignment.getDrones()) {
+                if (droneIndexes.containsKey(droneAvailability.getId())) {
+                    continue;
+                }
+                int index = droneIds.size();
+                droneIds.add(droneAvailability.getId());
+                droneIndexes.put(droneAvailability.getId(), index);
+
+                for (Availability slot : droneAvailability.getAvailability()) {
+                    slotsByDay.computeIfAbsent(slot.getDayOfWeek(), d -> new ArrayList<>())
+                            .add(new long[]{slot.getFrom().toNanoOfDay(), slot.getUntil().toNanoOfDay(), index});
+                }
+            }
+        }
+
+        slotsByDay.forEach((day, slots) -> days.put(day, new DayIndex(slots, droneIds.size())));
+    }
+
+    /**
+     * builds the index for an assignments snapshot, or returns the existing one if it was built from the same list
+     * @param assignments drone to service point assignments with availability
+     * @return the index
+     */
+    public static AvailabilityIndex of(List<DroneForServicePointResponse> assignments) {
+        return LATEST.get(assignments, AvailabilityIndex::new);
+    }
+
+    /**
+     * @param droneId
+     * @return the drone's number in this index, or -1 if it has no availability listing
+     */
+    public int indexOf(String droneId) {
+        return droneIndexes.getOrDefault(droneId, -1);
+    }
+
+    public String droneId(int index) {
+        return droneIds.get(index);
+    }
+
+    public int size() {
+        return droneIds.size();
+    }
+
+    /**
+     * drones with a slot on this day where from <= time <= until
+     * @param dayOfWeek
+     * @param time
+     * @return a new bitset of drone numbers
+     */
+    public BitSet availableAt(DayOfWeek dayOfWeek, LocalTime time) {
+        DayIndex day = days.get(dayOfWeek);
+        return day == null ? new BitSet() : day.availableAt(time.toNanoOfDay());
+    }
+
+    /**
+     * drones with a slot on this day that starts no later than the given time, any slot on the day if time is null
+     * @param dayOfWeek
+     * @param time
+     * @return a new bitset of drone numbers
+     */
+    public BitSet availableFromBy(DayOfWeek dayOfWeek, LocalTime time) {
+        DayIndex day = days.get(dayOfWeek);
+        if (day == null) {
+            return new BitSet();
+        }
+        return day.startingBy(time == null ? Long.MAX_VALUE : time.toNanoOfDay());
+    }
+
+    public boolean isAvailable(String droneId, DayOfWeek dayOfWeek, LocalTime time) {
+        int index = indexOf(droneId);
+        return index >= 0 && availableAt(dayOfWeek, time).get(index);
+    }
+
+    /**
+     * the drone's slots on a day, used to schedule several sorties of one drone across the day
+     * @param droneId
+     * @param dayOfWeek
+     * @return the slots sorted by start time, empty if the drone has none that day
+     */
+    public List<Availability> slotsOf(String droneId, DayOfWeek dayOfWeek) {
+        int index = indexOf(droneId);
+        DayIndex day = days.get(dayOfWeek);
+        if (index < 0 || day == null) {
+            return List.of();
+        }
+        List<Availability> slots = new ArrayList<>();
+        for (int j = 0; j < day.starts.length; j++) {
+            if (day.startDrones[j] == index) {
+                slots.add(new Availability(dayOfWeek, LocalTime.ofNanoOfDay(day.starts[j]), LocalTime.ofNanoOfDay(day.ends[j])));
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * availability for a single day of the week
+     * each drone's slots are merged into disjoint intervals, whose starts and ends are kept sorted as events that
+     * switch the drone on and off, a query replays the events up to the time from the nearest checkpoint before it
+     * a checkpoint of who is available is kept about every droneCount events, so the day takes memory in proportion
+     * to its slots rather than to slots times drones
+     * the slots are also kept as listed, sorted by start time
+     */
+    private static class DayIndex {
+        //fewest events between checkpoints, for days with only a few drones
+        private static final int MIN_CHECKPOINT_INTERVAL = 64;
+
+        private final long[] eventTimes; //when each event happens, nanos of day, sorted
+        private final int[] eventDrones; //drone number of each event
+        private final boolean[] eventOpens; //true where the drone becomes available, false where it stops
+        private final int checkpointInterval;
+        private final BitSet[] checkpoints; //drones available once the first k * checkpointInterval events happened
+        private final long[] starts; //slot start times, sorted
+        private final long[] ends; //end time of each sorted slot, inclusive
+        private final int[] startDrones; //drone number of each sorted slot
+
+        DayIndex(List<long[]> slots, int droneCount) {
+            List<long[]> sorted = new ArrayList<>(slots);
+            sorted.sort(Comparator.comparingLong(s -> s[0]));
+            starts = new long[sorted.size()];
+            ends = new long[sorted.size()];
+            startDrones = new int[sorted.size()];
+            for (int j = 0; j < sorted.size(); j++) {
+                starts[j] = sorted.get(j)[0];
+                ends[j] = sorted.get(j)[1];
+                startDrones[j] = (int) sorted.get(j)[2];
+            }
+
+            // merge each drone's overlapping or touching slots, so its events alternate on and off
+            // slots are inclusive of until, so a slot stops counting one nanosecond after it
+            List<long[]> byDrone = new ArrayList<>(sorted);
+            byDrone.sort(Comparator.<long[]>comparingLong(s -> s[2]).thenComparingLong(s -> s[0]));
+            List<long[]> events = new ArrayList<>(slots.size() * 2);
+            int j = 0;
+            while (j < byDrone.size()) {
+                long drone = byDrone.get(j)[2];
+                long from = byDrone.get(j)[0];
+                long until = byDrone.get(j)[1];
+                j++;
+                while (j < byDrone.size() && byDrone.get(j)[2] == drone && byDrone.get(j)[0] <= until + 1) {
+                    until = Math.max(until, byDrone.get(j)[1]);
+                    j++;
+                }
+                events.add(new long[]{from, drone, 1});
+                events.add(new long[]{until + 1, drone, 0});
+            }
+            events.sort(Comparator.comparingLong(e -> e[0]));
+
+            eventTimes = new long[events.size()];
+            eventDrones = new int[events.size()];
+            eventOpens = new boolean[events.size()];
+            checkpointInterval = Math.max(MIN_CHECKPOINT_INTERVAL, droneCount);
+            checkpoints = new BitSet[events.size() / checkpointInterval + 1];
+            BitSet active = new BitSet(droneCount);
+            for (int e = 0; e < events.size(); e++) {
+                if (e % checkpointInterval == 0) {
+                    checkpoints[e / checkpointInterval] = (BitSet) active.clone();
+                }
+                eventTimes[e] = events.get(e)[0];
+                eventDrones[e] = (int) events.get(e)[1];
+                eventOpens[e] = events.get(e)[2] == 1;
+                active.set(eventDrones[e], eventOpens[e]);
+            }
+            if (events.size() % checkpointInterval == 0) {
+                checkpoints[events.size() / checkpointInterval] = active;
+            }
+        }
+
+        BitSet availableAt(long time) {
+            // events at or before the time have happened
+            int low = 0, high = eventTimes.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (eventTimes[mid] <= time) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            int checkpoint = low / checkpointInterval;
+            BitSet result = (BitSet) checkpoints[checkpoint].clone();
+            for (int e = checkpoint * checkpointInterval; e < low; e++) {
+                result.set(eventDrones[e], eventOpens[e]);
+            }
+            return result;
+        }
+
+        BitSet startingBy(long time) {
+            BitSet result = new BitSet();
+            for (int j = 0; j < starts.length && starts[j] <= time; j++) {
+                result.set(startDrones[j]);
+            }
+            return result;
+        }
+    }
+}
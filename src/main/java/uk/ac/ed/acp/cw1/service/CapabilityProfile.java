@@ -0,0 +1,28 @@
+package uk.ac.ed.acp.cw1.service;
+
+import uk.ac.ed.acp.cw1.dto.Drone;
+
+/**
+ * The parts of a drone that decide whether it can take a dispatch and how its route is built
+ * drones of the same model at the same service point share a profile, so the {@link DroneService}
+ * and {@link PathfindingService} evaluate a profile once and apply the verdict to every drone that has it
+ * the capability is copied field by field, so a profile used as a map key never changes with the drone it came from
+ * @param cooling
+ * @param heating
+ * @param capacity
+ * @param maxMoves
+ * @param costPerMove
+ * @param costInitial
+ * @param costFinal
+ * @param servicePointId the service point the drone is assigned to, null if it has none
+ */
+record CapabilityProfile(boolean cooling, boolean heating, Double capacity, Integer maxMoves,
+                         Double costPerMove, Double costInitial, Double costFinal, Integer servicePointId) {
+
+    static CapabilityProfile of(Drone drone, Integer servicePointId) {
+        Drone.Capability capability = drone.getCapability();
+        return new CapabilityProfile(capability.isCooling(), capability.isHeating(), capability.getCapacity(),
+                capability.getMaxMoves(), capability.getCostPerMove(), capability.getCostInitial(),
+                capability.getCostFinal(), servicePointId);
+    }
+}
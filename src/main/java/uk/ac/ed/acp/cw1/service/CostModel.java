@@ -0,0 +1,254 @@
+package uk.ac.ed.acp.cw1.service;
+
+import uk.ac.ed.acp.cw1.dto.Drone;
+import uk.ac.ed.acp.cw1.dto.Position;
+import uk.ac.ed.acp.cw1.dto.RestrictedArea;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lower bounds on the moves and cost of a route, so drones that can never meet a route's maxMoves or maxCost
+ * are turned away before any path is searched
+ * a leg's bound is the shortest way around the restricted areas, found over the visibility graph of their corners,
+ * a drone moves in straight steps that never cross an edge of a restricted area so its path can never be shorter
+ * a leg that starts in, or ends against, a restricted area falls back to its straight line
+ */
+final class CostModel {
+
+    private static final double MOVE_DISTANCE = 0.00015;
+    private static final double CLOSE_DISTANCE = 0.00015; // a leg ends once the drone is closer than this
+    //points closer than this to an edge count as on it
+    private static final double ON_EDGE = 1e-12;
+
+    //the model for the most recent restricted areas list, reused while the same list instance is passed in
+    private static final LatestCache<List<RestrictedArea>, CostModel> LATEST = new LatestCache<>();
+
+    //lat, lng pairs of every area's vertices, each area is closed back to its first vertex
+    private final double[][] polygons;
+    //every vertex of every area, and the shortest corner to corner distances along the visibility graph
+    private final double[] cornerLat;
+    private final double[] cornerLng;
+    private final double[][] cornerDistances;
+
+    /**
+     * builds the model for a restricted areas snapshot, or returns the existing one if it was built from the same list
+     * @param restrictedAreas
+     * @return the model
+     */
+    static CostModel of(List<RestrictedArea> restrictedAreas) {
+        return LATEST.get(restrictedAreas, CostModel::new);
+    }
+
+    private CostModel(List<RestrictedArea> restrictedAreas) {
+        polygons = new double[restrictedAreas.size()][];
+        int corners = 0;
+        for (int i = 0; i < restrictedAreas.size(); i++) {
+            List<Position> vertices = restrictedAreas.get(i).getVertices();
+            polygons[i] = new double[2 * vertices.size()];
+            for (int v = 0; v < vertices.size(); v++) {
+                polygons[i][2 * v] = vertices.get(v).getLat();
+                polygons[i][2 * v + 1] = vertices.get(v).getLng();
+            }
+            corners += vertices.size();
+        }
+
+        cornerLat = new double[corners];
+        cornerLng = new double[corners];
+        int c = 0;
+        for (double[] polygon : polygons) {
+            for (int v = 0; v < polygon.length; v += 2) {
+                cornerLat[c] = polygon[v];
+                cornerLng[c++] = polygon[v + 1];
+            }
+        }
+
+        // direct distances between corners that can see each other, then all pairs shortest paths
+        cornerDistances = new double[corners][corners];
+        for (int a = 0; a < corners; a++) {
+            Arrays.fill(cornerDistances[a], Double.POSITIVE_INFINITY);
+            cornerDistances[a][a] = 0;
+        }
+        for (int a = 0; a < corners; a++) {
+            for (int b = a + 1; b < corners; b++) {
+                if (isVisible(cornerLat[a], cornerLng[a], cornerLat[b], cornerLng[b])) {
+                    double distance = distance(cornerLat[a], cornerLng[a], cornerLat[b], cornerLng[b]);
+                    cornerDistances[a][b] = distance;
+                    cornerDistances[b][a] = distance;
+                }
+            }
+        }
+        for (int k = 0; k < corners; k++) {
+            for (int a = 0; a < corners; a++) {
+                for (int b = 0; b < corners; b++) {
+                    double through = cornerDistances[a][k] + cornerDistances[k][b];
+                    if (through < cornerDistances[a][b]) {
+                        cornerDistances[a][b] = through;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * the cost of a flight with the given number of moves
+     * @param capability the drone's capability
+     * @param moves
+     * @return costInitial + moves * costPerMove + costFinal
+     */
+    static double cost(Drone.Capability capability, int moves) {
+        return capability.getCostInitial() + (moves * capability.getCostPerMove()) + capability.getCostFinal();
+    }
+
+    /**
+     * fewest moves a route through the stops can take, including the two drop-off markers of every delivery
+     * @param stops service point, deliveries, service point
+     * @return
+     */
+    int minRouteMoves(List<Position> stops) {
+        int moves = 2 * (stops.size() - 2);
+        for (int i = 0; i < stops.size() - 1; i++) {
+            moves += minMoves(stops.get(i), stops.get(i + 1));
+        }
+        return moves;
+    }
+
+    /**
+     * fewest moves that can take a drone from one position to within the close distance of another
+     * without crossing a restricted area, rounded down so it never overestimates even with floating point error
+     * @param from
+     * @param to
+     * @return
+     */
+    int minMoves(Position from, Position to) {
+        double moves = (shortestDistance(from, to) - CLOSE_DISTANCE) / MOVE_DISTANCE;
+        return moves <= 0 ? 0 : (int) Math.floor(moves);
+    }
+
+    /**
+     * length of the shortest way from one position to another around the restricted areas,
+     * or the straight line when the way around would not be a safe bound
+     */
+    private double shortestDistance(Position from, Position to) {
+        double fromLat = from.getLat(), fromLng = from.getLng();
+        double toLat = to.getLat(), toLng = to.getLng();
+        double straight = distance(fromLat, fromLng, toLat, toLng);
+        if (straight <= CLOSE_DISTANCE || isVisible(fromLat, fromLng, toLat, toLng)) {
+            return straight;
+        }
+        // the drone stops anywhere within the close distance of the end, the detour to the end
+        // only bounds that stop when nothing restricted lies within the close distance
+        if (isInside(fromLat, fromLng) || isInside(toLat, toLng) || isNearArea(toLat, toLng, CLOSE_DISTANCE)) {
+            return straight;
+        }
+
+        int corners = cornerLat.length;
+        double[] fromCorner = new double[corners];
+        double[] cornerTo = new double[corners];
+        for (int c = 0; c < corners; c++) {
+            fromCorner[c] = isVisible(fromLat, fromLng, cornerLat[c], cornerLng[c])
+                    ? distance(fromLat, fromLng, cornerLat[c], cornerLng[c]) : Double.POSITIVE_INFINITY;
+            cornerTo[c] = isVisible(cornerLat[c], cornerLng[c], toLat, toLng)
+                    ? distance(cornerLat[c], cornerLng[c], toLat, toLng) : Double.POSITIVE_INFINITY;
+        }
+
+        double shortest = Double.POSITIVE_INFINITY;
+        for (int a = 0; a < corners; a++) {
+            if (fromCorner[a] == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+            for (int b = 0; b < corners; b++) {
+                shortest = Math.min(shortest, fromCorner[a] + cornerDistances[a][b] + cornerTo[b]);
+            }
+        }
+        // no way around at all, the planners' fallback may still fly it so only the straight line is certain
+        return shortest == Double.POSITIVE_INFINITY ? straight : Math.max(straight, shortest);
+    }
+
+    /**
+     * a straight segment is visible when it crosses no edge of an area and does not cut through one
+     * corner to corner, touching a corner or running along an edge is allowed
+     */
+    private boolean isVisible(double aLat, double aLng, double bLat, double bLng) {
+        for (double[] polygon : polygons) {
+            int n = polygon.length / 2;
+            for (int i = 0; i < n; i++) {
+                int j = (i + 1) % n;
+                if (crosses(aLat, aLng, bLat, bLng, polygon[2 * i], polygon[2 * i + 1], polygon[2 * j], polygon[2 * j + 1])) {
+                    return false;
+                }
+            }
+        }
+        return !isInside((aLat + bLat) / 2, (aLng + bLng) / 2);
+    }
+
+    /**
+     * proper crossing of two segments, segments that only touch or overlap do not cross
+     */
+    private static boolean crosses(double aLat, double aLng, double bLat, double bLng,
+                                   double cLat, double cLng, double dLat, double dLng) {
+        double d1 = orientation(cLat, cLng, dLat, dLng, aLat, aLng);
+        double d2 = orientation(cLat, cLng, dLat, dLng, bLat, bLng);
+        double d3 = orientation(aLat, aLng, bLat, bLng, cLat, cLng);
+        double d4 = orientation(aLat, aLng, bLat, bLng, dLat, dLng);
+        return d1 * d2 < 0 && d3 * d4 < 0;
+    }
+
+    private static double orientation(double aLat, double aLng, double bLat, double bLng, double cLat, double cLng) {
+        return (bLat - aLat) * (cLng - aLng) - (bLng - aLng) * (cLat - aLat);
+    }
+
+    /**
+     * strictly inside some area, points on an edge are outside
+     */
+    private boolean isInside(double lat, double lng) {
+        if (isNearArea(lat, lng, ON_EDGE)) {
+            return false;
+        }
+        for (double[] polygon : polygons) {
+            int n = polygon.length / 2;
+            boolean inside = false;
+            for (int i = 0, j = n - 1; i < n; j = i++) {
+                double iLat = polygon[2 * i], iLng = polygon[2 * i + 1];
+                double jLat = polygon[2 * j], jLng = polygon[2 * j + 1];
+                if ((iLng > lng) != (jLng > lng)
+                        && lat < (jLat - iLat) * (lng - iLng) / (jLng - iLng) + iLat) {
+                    inside = !inside;
+                }
+            }
+            if (inside) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * within the given distance of an edge of some area
+     */
+    private boolean isNearArea(double lat, double lng, double within) {
+        for (double[] polygon : polygons) {
+            int n = polygon.length / 2;
+            for (int i = 0; i < n; i++) {
+                int j = (i + 1) % n;
+                if (distanceToSegment(lat, lng, polygon[2 * i], polygon[2 * i + 1], polygon[2 * j], polygon[2 * j + 1]) < within) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static double distanceToSegment(double lat, double lng, double aLat, double aLng, double bLat, double bLng) {
+        double dLat = bLat - aLat;
+        double dLng = bLng - aLng;
+        double lengthSquared = dLat * dLat + dLng * dLng;
+        double t = lengthSquared == 0 ? 0 : ((lat - aLat) * dLat + (lng - aLng) * dLng) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        return distance(lat, lng, aLat + t * dLat, aLng + t * dLng);
+    }
+
+    private static double distance(double aLat, double aLng, double bLat, double bLng) {
+        return Math.sqrt((bLat - aLat) * (bLat - aLat) + (bLng - aLng) * (bLng - aLng));
+    }
+}
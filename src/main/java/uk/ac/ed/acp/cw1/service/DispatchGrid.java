@@ -0,0 +1,200 @@
+package uk.ac.ed.acp.cw1.service;
+
+import uk.ac.ed.acp.cw1.dto.MedDispatchRec;
+import uk.ac.ed.acp.cw1.dto.Position;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Uniform grid over the delivery points of a list of dispatches, sized for about one dispatch per cell
+ * used by the {@link PathfindingService} route builder to find a drone's nearest candidate by searching rings of cells
+ * outwards from a position, so only nearby candidates are measured instead of every one of them
+ * each cell keeps the smallest capacity among its dispatches, so cells a drone cannot carry anything from are skipped
+ * one grid serves every drone planned over the same list, each drone's candidates are picked out with a mask
+ */
+final class DispatchGrid {
+
+    //below this many candidates scanning them all is cheaper than building a grid
+    static final int MIN_CANDIDATES = 32;
+
+    private static final double MIN_CELL_SIZE = 0.00015;
+
+    //the grid for the most recent dispatch list, reused while the same list instance is passed in
+    private static final LatestCache<List<MedDispatchRec>, DispatchGrid> LATEST = new LatestCache<>();
+
+    private final List<MedDispatchRec> dispatches;
+    private final double minLat;
+    private final double minLng;
+    private final double cellSize;
+    private final int cols; //cells along lat
+    private final int rows; //cells along lng
+    //candidate indexes grouped by cell, the candidates of cell c are members[cellStart[c]] until members[cellStart[c + 1]]
+    private final int[] cellStart;
+    private final int[] members;
+    private final double[] minCapacity;
+
+    /**
+     * tests a candidate once its distance is known, for constraints the grid does not index
+     */
+    @FunctionalInterface
+    interface CandidateFilter {
+        boolean accept(MedDispatchRec candidate, double distance);
+    }
+
+    /**
+     * builds the grid for a dispatch list, or returns the existing one if it was built from the same list
+     * @param dispatches
+     * @return the grid
+     */
+    static DispatchGrid of(List<MedDispatchRec> dispatches) {
+        return LATEST.get(dispatches, DispatchGrid::new);
+    }
+
+    private DispatchGrid(List<MedDispatchRec> dispatches) {
+        this.dispatches = dispatches;
+        int n = dispatches.size();
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+        double minLng = Double.MAX_VALUE, maxLng = -Double.MAX_VALUE;
+        for (MedDispatchRec dispatch : dispatches) {
+            Position delivery = dispatch.getDelivery();
+            minLat = Math.min(minLat, delivery.getLat());
+            maxLat = Math.max(maxLat, delivery.getLat());
+            minLng = Math.min(minLng, delivery.getLng());
+            maxLng = Math.max(maxLng, delivery.getLng());
+        }
+        this.minLat = minLat;
+        this.minLng = minLng;
+
+        // about one dispatch per cell over the area they cover, but never more cells along a side than dispatches
+        double height = maxLat - minLat;
+        double width = maxLng - minLng;
+        double size = Math.sqrt(height * width / n);
+        size = Math.max(size, Math.max(height, width) / n);
+        cellSize = Math.max(size, MIN_CELL_SIZE);
+        cols = (int) (height / cellSize) + 1;
+        rows = (int) (width / cellSize) + 1;
+
+        int[] cells = new int[n];
+        cellStart = new int[cols * rows + 1];
+        minCapacity = new double[cols * rows];
+        Arrays.fill(minCapacity, Double.MAX_VALUE);
+        for (int i = 0; i < n; i++) {
+            Position delivery = dispatches.get(i).getDelivery();
+            cells[i] = cell(col(delivery.getLat()), row(delivery.getLng()));
+            cellStart[cells[i] + 1]++;
+            minCapacity[cells[i]] = Math.min(minCapacity[cells[i]], dispatches.get(i).getRequirements().getCapacity());
+        }
+        for (int c = 0; c < cols * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        members = new int[n];
+        int[] next = Arrays.copyOf(cellStart, cols * rows);
+        for (int i = 0; i < n; i++) {
+            members[next[cells[i]]++] = i;
+        }
+    }
+
+    /**
+     * marks which of the grid's dispatches are candidates
+     * @param candidates some of the grid's dispatches, in the same order as in the grid's list
+     * @return one flag per dispatch of the grid, or null if the candidates are not taken from the list in order
+     */
+    boolean[] mask(List<MedDispatchRec> candidates) {
+        boolean[] mask = new boolean[dispatches.size()];
+        int i = 0;
+        for (MedDispatchRec candidate : candidates) {
+            while (i < dispatches.size() && dispatches.get(i) != candidate) {
+                i++;
+            }
+            if (i == dispatches.size()) {
+                return null;
+            }
+            mask[i++] = true;
+        }
+        return mask;
+    }
+
+    /**
+     * finds the nearest candidate to a position that passes every check, the same candidate a scan of the
+     * candidates in order would pick, so the earliest in list order wins a tie
+     * @param candidates the {@link #mask} of the dispatches to search
+     * @param from where the distances are measured from
+     * @param distanceService measures the distances
+     * @param maxDistance candidates further than this are never accepted, so the search can stop there
+     * @param accumulatedCapacity capacity already on the drone
+     * @param droneCapacity the drone's capacity
+     * @param used ids of candidates already on the route
+     * @param filter the remaining checks
+     * @return the nearest accepted candidate, or null if there is none
+     */
+    MedDispatchRec nearest(boolean[] candidates, Position from, DistanceService distanceService, double maxDistance, double accumulatedCapacity,
+                double droneCapacity, Set<Integer> used, CandidateFilter filter) {
+        int fromCol = col(from.getLat());
+        int fromRow = row(from.getLng());
+        // rings closer than the grid hold no cells, rings past the furthest corner cannot either
+        int firstRing = Math.max(Math.max(fromCol - (cols - 1), -fromCol), Math.max(fromRow - (rows - 1), -fromRow));
+        firstRing = Math.max(0, firstRing);
+        int lastRing = Math.max(Math.max(fromCol, cols - 1 - fromCol), Math.max(fromRow, rows - 1 - fromRow));
+
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        for (int ring = firstRing; ring <= lastRing; ring++) {
+            // every cell of the ring is at least ring - 1 cells away, with some slack for rounding at cell edges
+            double ringDistance = (ring - 1.01) * cellSize;
+            if (ringDistance > maxDistance || ringDistance > bestDistance) {
+                break;
+            }
+            for (int col = fromCol - ring; col <= fromCol + ring; col++) {
+                if (col < 0 || col >= cols) {
+                    continue;
+                }
+                // the first and last columns of the ring are whole, the ones between only have their two ends
+                boolean edge = col == fromCol - ring || col == fromCol + ring;
+                int step = edge || ring == 0 ? 1 : 2 * ring;
+                for (int row = fromRow - ring; row <= fromRow + ring; row += step) {
+                    if (row < 0 || row >= rows) {
+                        continue;
+                    }
+                    int cell = cell(col, row);
+                    if (accumulatedCapacity + minCapacity[cell] > droneCapacity) {
+                        continue; // nothing in the cell fits, this also skips empty cells
+                    }
+                    for (int m = cellStart[cell]; m < cellStart[cell + 1]; m++) {
+                        int index = members[m];
+                        if (!candidates[index]) {
+                            continue;
+                        }
+                        MedDispatchRec candidate = dispatches.get(index);
+                        if (used.contains(candidate.getId())
+                                || accumulatedCapacity + candidate.getRequirements().getCapacity() > droneCapacity) {
+                            continue;
+                        }
+                        double distance = distanceService.euclideanDistance(from, candidate.getDelivery());
+                        if (distance > bestDistance || (distance == bestDistance && index > best)) {
+                            continue;
+                        }
+                        if (filter.accept(candidate, distance)) {
+                            best = index;
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+        }
+        return best < 0 ? null : dispatches.get(best);
+    }
+
+    private int col(double lat) {
+        return (int) Math.floor((lat - minLat) / cellSize);
+    }
+
+    private int row(double lng) {
+        return (int) Math.floor((lng - minLng) / cellSize);
+    }
+
+    private int cell(int col, int row) {
+        return col * rows + row;
+    }
+}
@@ -4,9 +4,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import uk.ac.ed.acp.cw1.dto.*;
 
-import java.time.DayOfWeek;
-import java.time.LocalDate;
-import java.time.LocalTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -86,7 +83,7 @@ public class DroneService {
         List<DroneForServicePointResponse> dronesForServicePoints = externalAPIService.getDronesForServicePoints();
         List<ServicePoint> servicePoints = externalAPIService.getServicePoints();
 
-        Map<String, DroneAvailability> droneAvailabilityMap = buildDroneAvailabilityMap(dronesForServicePoints);
+        AvailabilityIndex availabilityIndex = AvailabilityIndex.of(dronesForServicePoints);
 
         Map<String, Integer> droneToServicePointMap = buildDroneToServicePointMap(dronesForServicePoints);
 
@@ -116,62 +113,48 @@ public class DroneService {
                 .min(Double::compareTo)
                 .orElse(null);
 
+        //drones available at the time of every dispatch, intersected per dispatch from the index
+        BitSet availableForAll = null;
+        for (MedDispatchRec dispatch : dispatches) {
+            BitSet availableAtDispatch = availabilityIndex.availableAt(dispatch.getDate().getDayOfWeek(), dispatch.getTime());
+            if (availableForAll == null) {
+                availableForAll = availableAtDispatch;
+            } else {
+                availableForAll.and(availableAtDispatch);
+            }
+        }
+        final BitSet availableForAllFinal = availableForAll;
+
+        //service point to dispatch distances, computed once and shared by every drone at the same service point
+        ServicePointDistances distances = new ServicePointDistances(servicePoints, dispatches);
+        Map<CapabilityProfile, Boolean> verdicts = new HashMap<>();
+
         //uses helper function canFulfillAllDispatches to compare all drones to the calculated constraints from dispatches
         //also checks availability for EVERY dispatch time (not just the first)
         return allDrones.stream()
                 .filter(drone -> {
-                    // determine assigned service point for this drone (if any)
+                    // determine assigned service point for this drone (if any), otherwise each dispatch uses its closest
                     Integer assignedSpId = droneToServicePointMap.get(drone.getId());
-                    ServicePoint assignedSp = null;
-                    if (assignedSpId != null) {
-                        final Integer spIdFinal = assignedSpId;
-                        assignedSp = servicePoints.stream()
-                                .filter(sp -> sp.getId().equals(spIdFinal))
-                                .findFirst()
-                                .orElse(null);
-                    }
 
                     // check capability with dispatches and service points for proper cost estimation
-                    if (!canFulfillAllDispatches(drone, maxCapacity, coolingRequired, heatingRequired,
-                                                  minimumMaxCost, dispatches, servicePoints, assignedSp)) {
+                    // drones with the same capability at the same service point get the same verdict, so it is only worked out once
+                    boolean capable = verdicts.computeIfAbsent(CapabilityProfile.of(drone, assignedSpId),
+                            profile -> canFulfillAllDispatches(drone.getCapability(), maxCapacity, coolingRequired,
+                                    heatingRequired, minimumMaxCost, dispatches, distances,
+                                    distances.rowFor(profile.servicePointId())));
+                    if (!capable) {
                         return false;
                     }
 
                     // check availability for EVERY dispatch time
-                    DroneAvailability availability = droneAvailabilityMap.get(drone.getId());
-                    if (availability == null) {
-                        return false; // No availability data = unavailable
-                    }
-
-                    // drone must be available for ALL dispatches
-                    for (MedDispatchRec dispatch : dispatches) {
-                        LocalDate date = dispatch.getDate();
-                        LocalTime time = dispatch.getTime();
-                        DayOfWeek dayOfWeek = date.getDayOfWeek();
-
-                        if (!isDroneAvailable(availability, dayOfWeek, time)) {
-                            return false; // Unavailable for this dispatch = reject drone
-                        }
-                    }
-
-                    return true; // available for all dispatches
+                    // drones without availability data are never in the bitset
+                    int index = availabilityIndex.indexOf(drone.getId());
+                    return index >= 0 && availableForAllFinal.get(index);
                 })
                 .map(drone -> String.valueOf(drone.getId()))
                 .collect(Collectors.toList());
     }
 
-    private Map<String, DroneAvailability> buildDroneAvailabilityMap(List<DroneForServicePointResponse> dronesForSP) {
-        Map<String, DroneAvailability> map = new HashMap<>();
-
-        for (DroneForServicePointResponse sp : dronesForSP) {
-            for (DroneAvailability droneAvail : sp.getDrones()) {
-                map.put(droneAvail.getId(), droneAvail);
-            }
-        }
-
-        return map;
-    }
-
     private Map<String, Integer> buildDroneToServicePointMap(List<DroneForServicePointResponse> dronesForSP) {
         Map<String, Integer> map = new HashMap<>();
         for (DroneForServicePointResponse sp : dronesForSP) {
@@ -183,31 +166,14 @@ public class DroneService {
         return map;
     }
 
-    private boolean isDroneAvailable(DroneAvailability droneAvail, DayOfWeek dayOfWeek, LocalTime time) {
-        for (Availability slot : droneAvail.getAvailability()) {
-            if (slot.getDayOfWeek() == dayOfWeek) {
-                LocalTime from = slot.getFrom();
-                LocalTime until = slot.getUntil();
-
-                // check if time falls within [from, until)
-                if (!time.isBefore(from) && !time.isAfter(until)) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
-    private boolean canFulfillAllDispatches(Drone drone,
+    private boolean canFulfillAllDispatches(Drone.Capability capability,
                                             double maxCapacityNeeded,
                                             boolean coolingRequired,
                                             boolean heatingRequired,
                                             Double maxCostAllowed,
                                             List<MedDispatchRec> dispatches,
-                                            List<ServicePoint> servicePoints,
-                                            ServicePoint assignedServicePoint) {
-        Drone.Capability capability = drone.getCapability();
-
+                                            ServicePointDistances distances,
+                                            int distanceRow) {
         //check capacity constraint (drone only needs to satisfy max single dispatch capacity)
         if(capability.getCapacity() < maxCapacityNeeded){
             return false;
@@ -222,19 +188,16 @@ public class DroneService {
             return false;
         }
 
+        //no service point to estimate the flights from
+        if((capability.getMaxMoves() != null || maxCostAllowed != null) && !distances.hasServicePoints()){
+            return false;
+        }
+
         //check maxMoves constraint for each dispatch (round trip)
         if(capability.getMaxMoves() != null && !dispatches.isEmpty()){
-            for (MedDispatchRec dispatch : dispatches) {
-                // use assigned service point for this drone if available, otherwise pick closest
-                ServicePoint spToUse = assignedServicePoint != null ? assignedServicePoint : findClosestServicePoint(
-                    dispatch.getDelivery(), servicePoints
-                );
-
-                // calculate distance from service point to delivery location (one way)
-                double distance = distanceService.euclideanDistance(
-                    spToUse.getLocation(),
-                    dispatch.getDelivery()
-                );
+            for (int i = 0; i < dispatches.size(); i++) {
+                // distance from the drone's service point to delivery location (one way)
+                double distance = distances.get(distanceRow, i);
 
                 // estimate moves needed for round trip
                 double estimatedMovesOneWay = distance / MOVE_DISTANCE;
@@ -255,18 +218,9 @@ public class DroneService {
             // calculate estimated cost per dispatch
             double totalEstimatedCost = 0.0;
 
-            for (MedDispatchRec dispatch : dispatches) {
-                // use assigned service point for this drone if available, otherwise pick closest
-                ServicePoint spToUse = assignedServicePoint != null ? assignedServicePoint : findClosestServicePoint(
-                    dispatch.getDelivery(), servicePoints
-                );
-
-                // calculate distance from service point to delivery location
-                double distance = distanceService.euclideanDistance(
-                    spToUse.getLocation(),
-                    dispatch.getDelivery()
-                );
-
+            for (int i = 0; i < numDispatches; i++) {
+                // distance from the drone's service point to delivery location
+                double distance = distances.get(distanceRow, i);
 
                 double estimatedMoves = (distance / MOVE_DISTANCE) * 2;
 
@@ -289,17 +243,59 @@ public class DroneService {
     }
 
     /**
-     * find the closest service point to a given delivery location
-     * @param deliveryLocation the delivery destination
-     * @param servicePoints list of available service points
-     * @return the closest service point
+     * Distances from every service point to every dispatch of a request, stored row by row in one array
+     * the extra last row holds the distance from each dispatch's closest service point, used by drones without one
      */
-    private ServicePoint findClosestServicePoint(Position deliveryLocation, List<ServicePoint> servicePoints) {
-        return servicePoints.stream()
-                .min(Comparator.comparingDouble(sp ->
-                    distanceService.euclideanDistance(sp.getLocation(), deliveryLocation)
-                ))
-                .orElse(servicePoints.get(0)); // Fallback to first service point
+    private class ServicePointDistances {
+        private final int dispatchCount;
+        private final int closestRow;
+        private final double[] distances;
+        private final Map<Integer, Integer> rowsByServicePointId = new HashMap<>();
+
+        ServicePointDistances(List<ServicePoint> servicePoints, List<MedDispatchRec> dispatches) {
+            dispatchCount = dispatches.size();
+            closestRow = servicePoints.size();
+            distances = new double[(servicePoints.size() + 1) * dispatchCount];
+
+            for (int sp = 0; sp < servicePoints.size(); sp++) {
+                //the first service point with an id wins, as with the stream lookup this replaced
+                rowsByServicePointId.putIfAbsent(servicePoints.get(sp).getId(), sp);
+                for (int i = 0; i < dispatchCount; i++) {
+                    distances[sp * dispatchCount + i] = distanceService.euclideanDistance(
+                            servicePoints.get(sp).getLocation(),
+                            dispatches.get(i).getDelivery()
+                    );
+                }
+            }
+
+            // closest service point per dispatch, the earlier one wins a tie
+            for (int i = 0; i < dispatchCount; i++) {
+                double closest = Double.MAX_VALUE;
+                for (int sp = 0; sp < servicePoints.size(); sp++) {
+                    closest = Math.min(closest, distances[sp * dispatchCount + i]);
+                }
+                distances[closestRow * dispatchCount + i] = closest;
+            }
+        }
+
+        boolean hasServicePoints() {
+            return closestRow > 0;
+        }
+
+        /**
+         * @param servicePointId the drone's service point, may be null
+         * @return the row for that service point, or the closest service point row if it is unknown
+         */
+        int rowFor(Integer servicePointId) {
+            if (servicePointId == null) {
+                return closestRow;
+            }
+            return rowsByServicePointId.getOrDefault(servicePointId, closestRow);
+        }
+
+        double get(int row, int dispatchIndex) {
+            return distances[row * dispatchCount + dispatchIndex];
+        }
     }
 
 
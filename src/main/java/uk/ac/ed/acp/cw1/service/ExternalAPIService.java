@@ -1,7 +1,17 @@
 package uk.ac.ed.acp.cw1.service;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
@@ -11,14 +21,87 @@ import uk.ac.ed.acp.cw1.dto.DroneForServicePointResponse;
 import uk.ac.ed.acp.cw1.dto.RestrictedArea;
 import uk.ac.ed.acp.cw1.dto.ServicePoint;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class ExternalAPIService {
+    private static final Logger logger = LoggerFactory.getLogger(ExternalAPIService.class);
     private final RestTemplate restTemplate;
     private final String ilpEndpoint;
 
+    //last response of each dataset with its validators, keyed by path
+    private final Map<String, Snapshot<?>> snapshots = new ConcurrentHashMap<>();
+    //upstream requests currently running, keyed by path
+    private final Map<String, CompletableFuture<List<?>>> inFlight = new ConcurrentHashMap<>();
+
+    //breaker state per dataset, keyed by path
+    private final Map<String, DatasetHealth> datasets = new ConcurrentHashMap<>();
+
+    //datasets only known from the snapshot file, served straight away until a background fetch of them succeeds
+    private final Set<String> bootDatasets = ConcurrentHashMap.newKeySet();
+    //datasets with a background fetch running
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    //consecutive failures before a dataset's breaker opens
+    @Value("${ilp.circuit-breaker.failure-threshold:3}")
+    private int failureThreshold = 3;
+
+    //how long an open breaker fails fast before letting a probe through
+    @Value("${ilp.circuit-breaker.open-duration:30s}")
+    private Duration openDuration = Duration.ofSeconds(30);
+
+    private Clock clock = Clock.systemUTC();
+
+    //file the datasets are saved to after every change and loaded from at startup, empty to disable
+    @Value("${ilp.snapshot.path:}")
+    private String snapshotPath = "";
+
+    private SnapshotFile snapshotFile;
+
+    //reads the response bodies, fields the DTOs do not have are ignored like the RestTemplate's own converter does
+    private static final ObjectMapper BODY_MAPPER = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    //array type of each dataset, needed to read the snapshot file back
+    private static final Map<String, Class<?>> DATASET_TYPES = Map.of(
+            "/drones", Drone[].class,
+            "/service-points", ServicePoint[].class,
+            "/drones-for-service-points", DroneForServicePointResponse[].class,
+            "/restricted-areas", RestrictedArea[].class
+    );
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public void setOpenDuration(Duration openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    public void setSnapshotPath(String snapshotPath) {
+        this.snapshotPath = snapshotPath;
+    }
+
     @Autowired
     public ExternalAPIService(RestTemplate restTemplate, String ilpEndpoint) {
         this.restTemplate = restTemplate;
@@ -26,91 +109,295 @@ public class ExternalAPIService {
 
     }
 
-    public List<Drone> getAllDrones(){
+    /**
+     * loads the datasets saved by a previous run, so they can be served before the upstream has answered
+     * (or while it is down), their validators are reused for the first conditional requests
+     * a loaded dataset is answered from the file without waiting on the upstream, and fetched in the background
+     * until that succeeds, so a service started while the upstream is down never waits out its timeouts
+     */
+    @PostConstruct
+    public void loadSnapshot(){
+        if (snapshotPath == null || snapshotPath.isBlank()) {
+            return;
+        }
+        snapshotFile = new SnapshotFile(Path.of(snapshotPath));
         try {
-            String url = ilpEndpoint + "/drones";
-            //research if i should use ResponseEntity or not
-            ResponseEntity<Drone[]> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    null,
-                    Drone[].class
-            );
-            //if response is okay and not null
-            if (response.getBody() != null) {
-                return List.of(response.getBody());
+            JsonNode stored = snapshotFile.read();
+            if (stored == null) {
+                return;
             }
-            //if body is null
-            return new ArrayList<>();
-        }catch(RestClientException e) {
-            //if there is error when fetching
-            return new ArrayList<>();
+            DATASET_TYPES.forEach((path, type) -> {
+                JsonNode dataset = stored.get(path);
+                if (dataset == null || !dataset.hasNonNull("data")) {
+                    return;
+                }
+                Object[] data = (Object[]) snapshotFile.getMapper().convertValue(dataset.get("data"), type);
+                if (snapshots.putIfAbsent(path, new Snapshot<>(List.of(data),
+                        dataset.path("eTag").textValue(), dataset.path("lastModified").textValue(),
+                        dataset.path("bodyHash").textValue())) == null) {
+                    bootDatasets.add(path);
+                }
+            });
+            logger.info("loaded reference data snapshot " + snapshotPath + " " + snapshots.keySet());
+        } catch (IOException | IllegalArgumentException e) {
+            logger.warn("could not load reference data snapshot " + snapshotPath + ": " + e.getMessage());
         }
     }
 
-    public List<ServicePoint> getServicePoints(){
+    private void saveSnapshot(){
+        if (snapshotFile == null) {
+            return;
+        }
         try {
-            String url = ilpEndpoint + "/service-points";
-            //research if i should use ResponseEntity or not
-            ResponseEntity<ServicePoint[]> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    null,
-                    ServicePoint[].class
-            );
-            //if response is okay and not null
-            if (response.getBody() != null) {
-                return List.of(response.getBody());
-            }
-            //if body is null
-            return new ArrayList<>();
-        }catch(RestClientException e) {
-            //if there is error when fetching
-            return new ArrayList<>();
+            snapshotFile.write(new TreeMap<>(snapshots));
+        } catch (IOException e) {
+            logger.warn("could not save reference data snapshot " + snapshotPath + ": " + e.getMessage());
         }
     }
 
+    public List<Drone> getAllDrones(){
+        return fetch("/drones", Drone[].class);
+    }
+
+    public List<ServicePoint> getServicePoints(){
+        return fetch("/service-points", ServicePoint[].class);
+    }
+
     public List<DroneForServicePointResponse> getDronesForServicePoints(){
+        return fetch("/drones-for-service-points", DroneForServicePointResponse[].class);
+    }
+
+    public List<RestrictedArea> getRestrictedAreas(){
+        return fetch("/restricted-areas", RestrictedArea[].class);
+    }
+
+    /**
+     * fetches a dataset, callers asking for a dataset that is already being fetched wait for that request
+     * and share its result instead of sending their own, nothing is kept once the request finishes
+     * @param path endpoint path of the dataset
+     * @param type array type the body is read as
+     * @return the dataset, or an empty list if it could not be fetched
+     */
+    @SuppressWarnings("unchecked")
+    private <T> List<T> fetch(String path, Class<T[]> type){
+        if (bootDatasets.contains(path)) {
+            List<T> data = (List<T>) snapshots.get(path).data();
+            healthOf(path).stale = true;
+            refreshInBackground(path, type);
+            return data;
+        }
+
+        CompletableFuture<List<?>> request = new CompletableFuture<>();
+        CompletableFuture<List<?>> inProgress = inFlight.putIfAbsent(path, request);
+        if (inProgress != null) {
+            List<T> shared;
+            try {
+                shared = (List<T>) inProgress.join();
+            } catch (CompletionException e) {
+                //followers see the leader's own exception, not the future's wrapper
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+            //the empty list for a failed fetch is mutable, so every caller gets its own
+            return shared.isEmpty() ? new ArrayList<>() : shared;
+        }
+
         try {
-            String url = ilpEndpoint + "/drones-for-service-points";
-            //research if i should use ResponseEntity or not
-            ResponseEntity<DroneForServicePointResponse[]> response = restTemplate.exchange(
+            List<T> data = fetchFromUpstream(path, type);
+            request.complete(data);
+            return data;
+        } catch (RuntimeException e) {
+            request.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(path, request);
+        }
+    }
+
+    /**
+     * fetches a dataset that is still only known from the snapshot file on a virtual thread, unless one is already
+     * fetching it, once a fetch gets an answer from the upstream the dataset is fetched like any other
+     * @param path endpoint path of the dataset
+     * @param type array type the body is read as
+     */
+    private <T> void refreshInBackground(String path, Class<T[]> type){
+        if (!refreshing.add(path)) {
+            return;
+        }
+        Thread.startVirtualThread(() -> {
+            try {
+                fetchFromUpstream(path, type);
+            } catch (RuntimeException e) {
+                logger.warn("could not refresh " + path + " in the background: " + e.getMessage());
+            } finally {
+                refreshing.remove(path);
+            }
+        });
+    }
+
+    /**
+     * the upstream answered with usable data, the dataset no longer needs to be served from the snapshot file
+     */
+    private void recordSuccess(String path, DatasetHealth health){
+        bootDatasets.remove(path);
+        health.recordSuccess(clock.instant());
+    }
+
+    private DatasetHealth healthOf(String path){
+        return datasets.computeIfAbsent(path, p -> new DatasetHealth(
+                new CircuitBreaker(failureThreshold, openDuration, clock)));
+    }
+
+    /**
+     * fetches a dataset, as a conditional request when the last response came with an ETag or Last-Modified
+     * when the upstream answers 304, or sends a body with the same hash as the last one, the previous list instance
+     * is returned without reading the body, so indexes cached against it (availability index, obstacle bounds) are not rebuilt
+     * while the dataset's circuit breaker is open, or when the fetch fails, the last good list is served as stale data
+     * @param path endpoint path of the dataset
+     * @param type array type the body is read as
+     * @return the dataset, or an empty list if it could not be fetched and there is nothing to fall back on
+     */
+    @SuppressWarnings("unchecked")
+    private <T> List<T> fetchFromUpstream(String path, Class<T[]> type){
+        Snapshot<T> previous = (Snapshot<T>) snapshots.get(path);
+        DatasetHealth health = healthOf(path);
+
+        if (!health.breaker.tryAcquire()) {
+            return serveStale(health, previous);
+        }
+        try {
+            String url = ilpEndpoint + path;
+            //the raw body is read so it can be hashed, it is only deserialised when the hash changed
+            ResponseEntity<byte[]> response = restTemplate.exchange(
                     url,
                     HttpMethod.GET,
-                    null,
-                    DroneForServicePointResponse[].class
+                    previous == null ? null : previous.conditionalRequest(),
+                    byte[].class
             );
-            //if response is okay and not null
-            if (response.getBody() != null) {
-                return List.of(response.getBody());
+            if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED) && previous != null) {
+                recordSuccess(path, health);
+                return previous.data();
             }
             //if body is null
-            return new ArrayList<>();
+            if (response.getBody() == null) {
+                recordSuccess(path, health);
+                return new ArrayList<>();
+            }
+
+            String bodyHash = hash(response.getBody());
+            List<T> data;
+            if (previous != null && bodyHash.equals(previous.bodyHash())) {
+                //same content under new validators (or none), keep the instance derived indexes were built from
+                data = previous.data();
+            } else {
+                data = List.of(BODY_MAPPER.readValue(response.getBody(), type));
+            }
+            //only a body that could be read counts as a success
+            recordSuccess(path, health);
+            snapshots.put(path, new Snapshot<>(data,
+                    response.getHeaders().getETag(),
+                    response.getHeaders().getFirst(HttpHeaders.LAST_MODIFIED),
+                    bodyHash));
+            if (previous == null || data != previous.data()) {
+                saveSnapshot();
+            }
+            return data;
+        }catch(IOException e) {
+            //a body that is not the expected JSON counts as a failed fetch
+            health.breaker.recordFailure();
+            logger.warn("could not read " + path + " from the upstream: " + e.getMessage());
+            return serveStale(health, previous);
         }catch(RestClientException e) {
             //if there is error when fetching
-            return new ArrayList<>();
+            health.breaker.recordFailure();
+            return serveStale(health, previous);
+        }catch(RuntimeException e) {
+            health.breaker.recordFailure();
+            throw e;
         }
     }
 
-    public List<RestrictedArea> getRestrictedAreas(){
+    /**
+     * @param body a raw response body
+     * @return the SHA-256 of the body as hex
+     */
+    private static String hash(byte[] body){
         try {
-            String url = ilpEndpoint + "/restricted-areas";
-            //research if i should use ResponseEntity or not
-            ResponseEntity<RestrictedArea[]> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    null,
-                    RestrictedArea[].class
-            );
-            //if response is okay and not null
-            if (response.getBody() != null) {
-                return List.of(response.getBody());
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            //every JDK has to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private <T> List<T> serveStale(DatasetHealth health, Snapshot<T> previous){
+        health.stale = true;
+        return previous == null ? new ArrayList<>() : previous.data();
+    }
+
+    /**
+     * @return the circuit breaker state and staleness of every dataset fetched so far, keyed by path
+     */
+    public Map<String, DatasetStatus> getDatasetStatus(){
+        Map<String, DatasetStatus> status = new TreeMap<>();
+        datasets.forEach((path, health) -> status.put(path, new DatasetStatus(
+                health.breaker.getState().name(), health.stale, health.lastSuccess)));
+        return status;
+    }
+
+    /**
+     * health of one dataset as reported by {@link #getDatasetStatus()}
+     * @param circuitState CLOSED, OPEN or HALF_OPEN
+     * @param stale true when the last answer given for the dataset was an old snapshot or an empty fallback
+     * @param lastSuccess when the upstream last answered, null if it never has
+     */
+    public record DatasetStatus(String circuitState, boolean stale, Instant lastSuccess) {}
+
+    /**
+     * breaker and staleness tracking for one dataset
+     */
+    private static class DatasetHealth {
+        private final CircuitBreaker breaker;
+        private volatile boolean stale;
+        private volatile Instant lastSuccess;
+
+        DatasetHealth(CircuitBreaker breaker){
+            this.breaker = breaker;
+        }
+
+        void recordSuccess(Instant now){
+            breaker.recordSuccess();
+            stale = false;
+            lastSuccess = now;
+        }
+    }
+
+    /**
+     * the last successful response of a dataset
+     * @param data the deserialised list, never modified
+     * @param eTag the ETag header, or null
+     * @param lastModified the Last-Modified header, or null
+     * @param bodyHash SHA-256 of the raw body the data was read from, or null if it is not known
+     */
+    private record Snapshot<T>(List<T> data, String eTag, String lastModified, String bodyHash) {
+
+        /**
+         * @return a request carrying the validators, or null when the upstream sent none
+         */
+        HttpEntity<Void> conditionalRequest(){
+            if (eTag == null && lastModified == null) {
+                return null;
             }
-            //if body is null
-            return new ArrayList<>();
-        }catch(RestClientException e) {
-            //if there is error when fetching
-            return new ArrayList<>();
+            HttpHeaders headers = new HttpHeaders();
+            if (eTag != null) {
+                headers.setIfNoneMatch(eTag);
+            }
+            if (lastModified != null) {
+                headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+            }
+            return new HttpEntity<>(headers);
         }
     }
 
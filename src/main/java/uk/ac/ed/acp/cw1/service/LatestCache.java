@@ -0,0 +1,31 @@
+package uk.ac.ed.acp.cw1.service;
+
+import java.util.function.Function;
+
+/**
+ * Keeps the value built from the most recent source, and hands it out again while the same source instance is passed in
+ * the upstream datasets are replaced rather than changed in place, so an identity check is enough to tell a new one,
+ * used for the indexes derived from them such as the {@link AvailabilityIndex}
+ * @param <S> the source the value is built from
+ * @param <T> the derived value
+ */
+final class LatestCache<S, T> {
+
+    private volatile Entry<S, T> latest;
+
+    private record Entry<S, T>(S source, T value) {}
+
+    /**
+     * @param source
+     * @param builder builds the value when the source is not the one the current value was built from
+     * @return the value for the source
+     */
+    T get(S source, Function<S, T> builder) {
+        Entry<S, T> entry = latest;
+        if (entry == null || entry.source() != source) {
+            entry = new Entry<>(source, builder.apply(source));
+            latest = entry;
+        }
+        return entry.value();
+    }
+}
@@ -0,0 +1,63 @@
+package uk.ac.ed.acp.cw1.service;
+
+import uk.ac.ed.acp.cw1.dto.Position;
+
+import java.util.Arrays;
+
+/**
+ * The flight path of one leg, kept as its start and the compass direction of every move
+ * routes are checked against maxMoves and maxCost on the move count alone, the positions are only replayed
+ * by the {@link PathfindingService} once a route is accepted, so rejected routes never build a path list
+ * a leg is only appended to while it is being searched, after that it is shared read only
+ */
+final class LegPath {
+
+    //no path for the leg fits the drone's move budget
+    static final LegPath OVER_BUDGET = new LegPath(null, new byte[0]);
+
+    private final Position start;
+    private byte[] directions;
+    private int moves;
+
+    /**
+     * an empty leg at the start position, for planners that walk forwards
+     */
+    LegPath(Position start) {
+        this(start, new byte[16]);
+        moves = 0;
+    }
+
+    /**
+     * a complete leg
+     * @param start
+     * @param directions index into the compass directions for every move, in order
+     */
+    LegPath(Position start, byte[] directions) {
+        this.start = start;
+        this.directions = directions;
+        this.moves = directions.length;
+    }
+
+    void add(int direction) {
+        if (moves == directions.length) {
+            directions = Arrays.copyOf(directions, directions.length * 2);
+        }
+        directions[moves++] = (byte) direction;
+    }
+
+    Position start() {
+        return start;
+    }
+
+    int moves() {
+        return moves;
+    }
+
+    /**
+     * @param move 0 for the first move
+     * @return index into the compass directions
+     */
+    int direction(int move) {
+        return directions[move];
+    }
+}
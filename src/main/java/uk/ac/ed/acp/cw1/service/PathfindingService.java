@@ -1,9 +1,19 @@
 package uk.ac.ed.acp.cw1.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import uk.ac.ed.acp.cw1.configuration.PlanningProperties;
+import uk.ac.ed.acp.cw1.configuration.PlanningProperties.PlanningLimits;
 import uk.ac.ed.acp.cw1.dto.*;
+import uk.ac.ed.acp.cw1.service.SearchWorkspace.Node;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Service
 public class PathfindingService {
@@ -22,123 +32,730 @@ public class PathfindingService {
             180, 202.5, 225, 247.5, 270, 292.5, 315, 337.5
     };
 
+    private static final double MOVE_DISTANCE = 0.00015; // Step size for drone movement
+    private static final double CLOSE_DISTANCE = 0.00015; // a leg ends once the drone is closer than this, as in DistanceService.isCloseTo
+
+    private static final long NANOS_PER_DAY = Duration.ofDays(1).toNanos();
+
+    //upper bound on how many straight moves a single jump can cover
+    private static final int MAX_JUMP_STEPS = 2000;
+
+    //when enabled A* prunes symmetric neighbours in open airspace and jumps along straight lines
+    @Value("${ilp.pathfinding.jump-point-search:false}")
+    private boolean jumpPointSearch = false;
+
+    public void setJumpPointSearch(boolean jumpPointSearch) {
+        this.jumpPointSearch = jumpPointSearch;
+    }
+
+    //when enabled the legs of a multi-delivery route are planned concurrently, except inside a speculative drone plan
+    //which already runs on the planning executor, so a drone plan never waits on tasks queued behind it
+    @Value("${ilp.pathfinding.parallel-legs:false}")
+    private boolean parallelLegs = false;
+
+    public void setParallelLegs(boolean parallelLegs) {
+        this.parallelLegs = parallelLegs;
+    }
+
+    //when enabled all drones are evaluated in parallel each round and the best feasible plan is committed
+    @Value("${ilp.pathfinding.speculative-drones:false}")
+    private boolean speculativeDrones = false;
+
+    public void setSpeculativeDrones(boolean speculativeDrones) {
+        this.speculativeDrones = speculativeDrones;
+    }
+
+    //when enabled the request is scheduled as sorties along one timeline over the days it spans, a drone can fly again
+    //once it is back at its service point, so it shows up in dronePaths once per sortie
+    @Value("${ilp.pathfinding.sortie-scheduling:false}")
+    private boolean sortieScheduling = false;
+
+    public void setSortieScheduling(boolean sortieScheduling) {
+        this.sortieScheduling = sortieScheduling;
+    }
+
+    //when enabled drones are tried cheapest first, by the lower bound on what their route would cost per delivery,
+    //instead of in fleet order, speculative planning already commits the cheapest plan so it is unaffected
+    @Value("${ilp.pathfinding.cheapest-first:false}")
+    private boolean cheapestFirst = false;
+
+    public void setCheapestFirst(boolean cheapestFirst) {
+        this.cheapestFirst = cheapestFirst;
+    }
+
+    //search budgets and route limits, with per endpoint overrides
+    private PlanningProperties planningProperties = new PlanningProperties();
+
+    @Autowired(required = false)
+    public void setPlanningProperties(PlanningProperties planningProperties) {
+        this.planningProperties = planningProperties;
+    }
+
+    //runs the concurrent fetches, route legs and speculative drone plans, on the calling thread until one is injected
+    //tasks on it join other tasks on it, so it has to start every task it is given (unbounded, one thread per task)
+    private Executor planningExecutor = Runnable::run;
+
+    @Autowired(required = false)
+    public void setPlanningExecutor(@Qualifier("planningExecutor") Executor planningExecutor) {
+        this.planningExecutor = planningExecutor;
+    }
+
+    //when enabled the upstream datasets are fetched concurrently, follows the virtual thread mode
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean concurrentFetch = false;
+
+    public void setConcurrentFetch(boolean concurrentFetch) {
+        this.concurrentFetch = concurrentFetch;
+    }
+
     public CalcDeliveryPathResponse calcDeliveryPath(List<MedDispatchRec> dispatches){
+        return calcDeliveryPath(dispatches, false);
+    }
+
+    /**
+     * plans the dispatches, optionally recording where the time went
+     * @param dispatches
+     * @param trace when true the response carries a {@link PlanTrace} with the time per stage, every leg planned
+     *              (which planner found it and how many A* nodes it expanded) and every route that was rejected
+     * @return the plan
+     */
+    public CalcDeliveryPathResponse calcDeliveryPath(List<MedDispatchRec> dispatches, boolean trace){
+        return plan(dispatches, planningProperties.limitsFor("calcDeliveryPath"), PlanTracer.of(trace));
+    }
+
+    /**
+     * plans the dispatches
+     * @param dispatches
+     * @param limits search budgets of the endpoint the request came in on
+     * @param tracer
+     * @return the plan, with the trace if the tracer is enabled
+     */
+    private CalcDeliveryPathResponse plan(List<MedDispatchRec> dispatches, PlanningLimits limits, PlanTracer tracer){
+       long started = System.nanoTime();
        if (dispatches == null || dispatches.isEmpty()){
-           return new CalcDeliveryPathResponse(0.0, 0, new ArrayList<>());
+           return new CalcDeliveryPathResponse(0.0, 0, new ArrayList<>(), tracer.toTrace());
        }
 
-        //fetch all necessary data from external service
-        List<Drone> drones = externalAPIService.getAllDrones();
-        List<ServicePoint> servicePoints = externalAPIService.getServicePoints();
-        List<DroneForServicePointResponse> dronesForServicePoints = externalAPIService.getDronesForServicePoints();
-        List<RestrictedArea> restrictedAreas = externalAPIService.getRestrictedAreas();
-
-        // Step 1: Group dispatches by date (treat null as same date)
-        Map<java.time.LocalDate, List<MedDispatchRec>> dispatchesByDate = groupDispatchesByDate(dispatches);
+        //fetch all necessary data from external service, all four at once when running on virtual threads
+        List<Drone> drones;
+        List<ServicePoint> servicePoints;
+        List<DroneForServicePointResponse> dronesForServicePoints;
+        List<RestrictedArea> restrictedAreas;
+        if (concurrentFetch) {
+            CompletableFuture<List<Drone>> dronesFuture =
+                    CompletableFuture.supplyAsync(externalAPIService::getAllDrones, planningExecutor);
+            CompletableFuture<List<ServicePoint>> servicePointsFuture =
+                    CompletableFuture.supplyAsync(externalAPIService::getServicePoints, planningExecutor);
+            CompletableFuture<List<DroneForServicePointResponse>> assignmentsFuture =
+                    CompletableFuture.supplyAsync(externalAPIService::getDronesForServicePoints, planningExecutor);
+            CompletableFuture<List<RestrictedArea>> restrictedAreasFuture =
+                    CompletableFuture.supplyAsync(externalAPIService::getRestrictedAreas, planningExecutor);
+            drones = dronesFuture.join();
+            servicePoints = servicePointsFuture.join();
+            dronesForServicePoints = assignmentsFuture.join();
+            restrictedAreas = restrictedAreasFuture.join();
+        } else {
+            drones = externalAPIService.getAllDrones();
+            servicePoints = externalAPIService.getServicePoints();
+            dronesForServicePoints = externalAPIService.getDronesForServicePoints();
+            restrictedAreas = externalAPIService.getRestrictedAreas();
+        }
+        tracer.stage("fetch", started);
 
         // Track results across all date groups
         List<DronePath> allDronePaths = new ArrayList<>();
         double totalCost = 0;
         int totalMoves = 0;
 
+        // with sortie scheduling the request is planned as one problem over the days it spans, drones carry their
+        // timeline from day to day and dispatches without a date can be flown on whichever day has room
+        if (sortieScheduling && dispatches.stream().anyMatch(d -> d.getDate() != null)) {
+            for (Sortie sortie : planBySorties(dispatches, drones, servicePoints, dronesForServicePoints, restrictedAreas, limits, tracer)) {
+                DronePath path = materialise(sortie.plan());
+                path.setTakeOff(sortie.takeOff());
+                path.setLanding(sortie.landing());
+                allDronePaths.add(path);
+                totalCost += sortie.plan().cost();
+                totalMoves += sortie.plan().moves();
+            }
+            tracer.stage("total", started);
+            return new CalcDeliveryPathResponse(totalCost, totalMoves, allDronePaths, tracer.toTrace());
+        }
+
+        // Step 1: Group dispatches by date (treat null as same date)
+        Map<java.time.LocalDate, List<MedDispatchRec>> dispatchesByDate = groupDispatchesByDate(dispatches);
+
         // Step 2: Process each date group
         for (Map.Entry<java.time.LocalDate, List<MedDispatchRec>> entry : dispatchesByDate.entrySet()) {
             java.time.LocalDate date = entry.getKey();
             List<MedDispatchRec> dateDispatches = entry.getValue();
 
             // Step 3: For this date, filter drones that are available
+            long filterStarted = System.nanoTime();
             List<Drone> availableDrones = filterAvailableDrones(drones, date, dateDispatches, dronesForServicePoints);
+            tracer.stage("filter", filterStarted);
+
+            // Step 4: Apply pathfinding for the available drones
+            long planStarted = System.nanoTime();
+            List<DronePlan> plans = speculativeDrones
+                    ? planDateSpeculatively(availableDrones, dateDispatches, servicePoints, dronesForServicePoints, restrictedAreas, limits, tracer)
+                    : planDateSequentially(availableDrones, dateDispatches, servicePoints, dronesForServicePoints, restrictedAreas, limits, tracer);
+            tracer.stage("plan", planStarted);
+
+            // Path is valid - add it to results, only accepted plans are turned into positions
+            for (DronePlan plan : plans) {
+                allDronePaths.add(materialise(plan));
+                totalCost += plan.cost();
+                totalMoves += plan.moves();
+            }
+        }
+
+        tracer.stage("total", started);
+        return new CalcDeliveryPathResponse(totalCost, totalMoves, allDronePaths, tracer.toTrace());
+    }
+
+    /**
+     * assigns the dispatches of one date to drones in fleet order, or cheapest first when enabled,
+     * each drone takes the first feasible route it can build
+     * @return the accepted plans in the order they were accepted
+     */
+    private List<DronePlan> planDateSequentially(List<Drone> availableDrones,
+                                                 List<MedDispatchRec> dateDispatches,
+                                                 List<ServicePoint> servicePoints,
+                                                 List<DroneForServicePointResponse> assignments,
+                                                 List<RestrictedArea> restrictedAreas,
+                                                 PlanningLimits limits,
+                                                 PlanTracer tracer) {
+        List<DronePlan> accepted = new ArrayList<>();
+        // Track which dispatches have been assigned for this date
+        Set<Integer> assignedDispatchIds = new HashSet<>();
+        // profiles that failed to plan, with how many dispatches were assigned at the time
+        // the assigned set only grows, so an unchanged count means another drone of the profile would fail too
+        Map<CapabilityProfile, Integer> failedProfiles = new HashMap<>();
+        List<Drone> ordered = cheapestFirst
+                ? orderCheapestFirst(availableDrones, dateDispatches, servicePoints, assignments, restrictedAreas, limits)
+                : availableDrones;
+
+        for (Drone drone : ordered) {
+            if (assignedDispatchIds.size() == dateDispatches.size()) {
+                break; // All dispatches for this date are assigned
+            }
 
+            CapabilityProfile profile = CapabilityProfile.of(drone, getServicePointIdForDrone(drone.getId(), assignments));
+            Integer failedAt = failedProfiles.get(profile);
+            if (failedAt != null && failedAt == assignedDispatchIds.size()) {
+                tracer.rejected(drone.getId(), List.of(), "same-profile-failed", 0, 0);
+                continue;
+            }
 
-            // Track which dispatches have been assigned for this date
-            Set<Integer> assignedDispatchIds = new HashSet<>();
+            DronePlan plan = planForDrone(drone, dateDispatches, assignedDispatchIds, servicePoints, assignments, restrictedAreas, limits,
+                    parallelLegs, tracer);
+            if (plan == null || !plan.feasible()) {
+                failedProfiles.put(profile, assignedDispatchIds.size());
+                continue;
+            }
 
-            // Step 4: Apply pathfinding for each available drone
-            for (Drone drone : availableDrones) {
-                if (assignedDispatchIds.size() == dateDispatches.size()) {
-                    break; // All dispatches for this date are assigned
-                }
+            accepted.add(plan);
+            // Mark these dispatches as assigned
+            plan.route().forEach(d -> assignedDispatchIds.add(d.getId()));
+        }
+
+        return accepted;
+    }
 
-                // Get the service point for this drone
-                ServicePoint servicePoint = getServicePointForDrone(drone.getId(), dronesForServicePoints, servicePoints);
+    /**
+     * orders drones by the lower bound on what the route each would build over all the dispatches costs per delivery,
+     * drones that could not build a route go last, ties keep fleet order
+     * @return a new list, the drones are not changed
+     */
+    private List<Drone> orderCheapestFirst(List<Drone> drones,
+                                           List<MedDispatchRec> dispatches,
+                                           List<ServicePoint> servicePoints,
+                                           List<DroneForServicePointResponse> assignments,
+                                           List<RestrictedArea> restrictedAreas,
+                                           PlanningLimits limits) {
+        CostModel costModel = CostModel.of(restrictedAreas);
+        // drones sharing a profile build the same route, so it is only bounded once
+        Map<CapabilityProfile, Double> boundsByProfile = new HashMap<>();
+        double[] bounds = new double[drones.size()];
+        for (int i = 0; i < drones.size(); i++) {
+            Drone drone = drones.get(i);
+            CapabilityProfile profile = CapabilityProfile.of(drone, getServicePointIdForDrone(drone.getId(), assignments));
+            bounds[i] = boundsByProfile.computeIfAbsent(profile, p -> {
+                ServicePoint servicePoint = getServicePointForDrone(drone.getId(), assignments, servicePoints);
                 if (servicePoint == null) {
-                    continue;
+                    return Double.POSITIVE_INFINITY;
+                }
+                List<MedDispatchRec> candidates = dispatches.stream()
+                        .filter(dispatch -> canDeliverSingleDispatch(drone, dispatch))
+                        .toList();
+                List<MedDispatchRec> route = candidates.isEmpty()
+                        ? List.of()
+                        : buildOptimalRoute(drone, servicePoint, dispatches, candidates, limits);
+                if (route.isEmpty()) {
+                    return Double.POSITIVE_INFINITY;
                 }
+                int minMoves = costModel.minRouteMoves(routeStops(servicePoint, route));
+                return CostModel.cost(drone.getCapability(), minMoves) / route.size();
+            });
+        }
 
-                // Find unassigned dispatches this drone can handle
-                List<MedDispatchRec> candidates = new ArrayList<>();
-                for (MedDispatchRec dispatch : dateDispatches) {
-                    if (assignedDispatchIds.contains(dispatch.getId())) {
-                        continue;
-                    }
+        List<Integer> order = new ArrayList<>(drones.size());
+        for (int i = 0; i < drones.size(); i++) {
+            order.add(i);
+        }
+        // the sort is stable, so equal bounds stay in fleet order
+        order.sort(Comparator.comparingDouble(i -> bounds[i]));
+        List<Drone> ordered = new ArrayList<>(drones.size());
+        for (int i : order) {
+            ordered.add(drones.get(i));
+        }
+        return ordered;
+    }
 
-                    // Check basic capability requirements
-                    if (!canDeliverSingleDispatch(drone, dispatch)) {
-                        continue;
-                    }
+    /**
+     * assigns the dispatches of one date in rounds, every round evaluates all remaining drones in parallel
+     * against the unassigned dispatches and commits the best feasible plan:
+     * most deliveries first, then cheapest, then earliest in the fleet so results are reproducible
+     * a drone's plan is only re-evaluated when the committed route could have changed it
+     * @return the accepted plans in the order they were committed
+     */
+    private List<DronePlan> planDateSpeculatively(List<Drone> availableDrones,
+                                                  List<MedDispatchRec> dateDispatches,
+                                                  List<ServicePoint> servicePoints,
+                                                  List<DroneForServicePointResponse> assignments,
+                                                  List<RestrictedArea> restrictedAreas,
+                                                  PlanningLimits limits,
+                                                  PlanTracer tracer) {
+        List<DronePlan> accepted = new ArrayList<>();
+        Set<Integer> assignedDispatchIds = new HashSet<>();
+        int droneCount = availableDrones.size();
+        DronePlan[] plans = new DronePlan[droneCount];
+        boolean[] evaluated = new boolean[droneCount];
+        boolean[] used = new boolean[droneCount];
+        CapabilityProfile[] profiles = new CapabilityProfile[droneCount];
+        for (int i = 0; i < droneCount; i++) {
+            Drone drone = availableDrones.get(i);
+            profiles[i] = CapabilityProfile.of(drone, getServicePointIdForDrone(drone.getId(), assignments));
+        }
 
-                    candidates.add(dispatch);
+        while (assignedDispatchIds.size() < dateDispatches.size()) {
+            // evaluate every drone without an up to date plan, the unassigned set is fixed for the round
+            // drones sharing a profile would build the same plan, so only the first of them is planned
+            Set<Integer> assignedSnapshot = Set.copyOf(assignedDispatchIds);
+            Map<CapabilityProfile, CompletableFuture<DronePlan>> futures = new LinkedHashMap<>();
+            for (int i = 0; i < droneCount; i++) {
+                if (!used[i] && !evaluated[i]) {
+                    Drone drone = availableDrones.get(i);
+                    // already on the planning executor, so the legs are planned inline
+                    futures.computeIfAbsent(profiles[i], profile -> CompletableFuture.supplyAsync(() -> planForDrone(drone,
+                            dateDispatches, assignedSnapshot, servicePoints, assignments, restrictedAreas, limits, false, tracer),
+                            planningExecutor));
+                }
+            }
+            for (int i = 0; i < droneCount; i++) {
+                CompletableFuture<DronePlan> future = futures.get(profiles[i]);
+                if (!used[i] && !evaluated[i] && future != null) {
+                    plans[i] = forDrone(future.join(), availableDrones.get(i));
+                    evaluated[i] = true;
                 }
+            }
 
-                if (candidates.isEmpty()) {
+            int best = -1;
+            for (int i = 0; i < droneCount; i++) {
+                if (used[i] || plans[i] == null || !plans[i].feasible()) {
                     continue;
                 }
+                if (best < 0 || isBetterPlan(plans[i], plans[best])) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break; // no remaining drone can take any of the unassigned dispatches
+            }
 
-                // Build optimal multi-delivery route for this drone
-                List<MedDispatchRec> route = buildOptimalRoute(drone, servicePoint, candidates, restrictedAreas);
+            DronePlan committed = plans[best];
+            accepted.add(committed);
+            used[best] = true;
+            Set<Integer> committedIds = new HashSet<>();
+            committed.route().forEach(d -> committedIds.add(d.getId()));
+            assignedDispatchIds.addAll(committedIds);
+
+            // plans that didn't use the committed dispatches are still what the drone would build now
+            for (int i = 0; i < droneCount; i++) {
+                if (!used[i] && plans[i] != null && isStale(plans[i], committedIds, assignedDispatchIds, limits.maxDeliveriesPerDrone())) {
+                    evaluated[i] = false;
+                }
+            }
+        }
 
-                if (route.isEmpty()) {
-                    continue;
+        return accepted;
+    }
+
+    /**
+     * schedules all dispatches of a request as sorties along one timeline over the days they span
+     * a dispatch's date and time mean something different here than in the default planner and queryAvailableDrones:
+     * there the drone only has to be available at that time, here it is the earliest the dispatch can take off,
+     * it may be flown any time later that day, and the whole sortie has to be flown inside one availability slot,
+     * so a drone whose slot ends before it could land again is rejected as outside-slot though the default planner
+     * would send it
+     * a dated dispatch is flown on its date, from its time (from the start of the date without a time), a dispatch
+     * without a date is flexible and can be flown on any day, so it goes on whichever day a drone has room first,
+     * and the horizon then covers at least a week
+     * the drone that can take off first flies the next sortie, over the dispatches ready by then, drones that have
+     * already flown win ties so the week needs fewer drones
+     * a sortie takes moves * moveDuration and must land within the slot it took off in, when the drone's route is too long
+     * for what is left of the slot a route limited to the moves left is tried before the drone waits for its next slot,
+     * the drone can take off again after the turnaround, a drone always lands back at its service point so that is
+     * where the next sortie starts
+     * @return the accepted sorties in take off order
+     */
+    private List<Sortie> planBySorties(List<MedDispatchRec> dispatches,
+                                       List<Drone> drones,
+                                       List<ServicePoint> servicePoints,
+                                       List<DroneForServicePointResponse> assignments,
+                                       List<RestrictedArea> restrictedAreas,
+                                       PlanningLimits limits,
+                                       PlanTracer tracer) {
+        long filterStarted = System.nanoTime();
+        java.time.LocalDate firstDay = null;
+        java.time.LocalDate lastDay = null;
+        boolean flexible = false;
+        for (MedDispatchRec dispatch : dispatches) {
+            java.time.LocalDate date = dispatch.getDate();
+            if (date == null) {
+                flexible = true;
+                continue;
+            }
+            firstDay = firstDay == null || date.isBefore(firstDay) ? date : firstDay;
+            lastDay = lastDay == null || date.isAfter(lastDay) ? date : lastDay;
+        }
+        if (flexible && lastDay.isBefore(firstDay.plusDays(6))) {
+            lastDay = firstDay.plusDays(6);
+        }
+        int days = (int) java.time.temporal.ChronoUnit.DAYS.between(firstDay, lastDay) + 1;
+
+        // every time below is in nanos since the start of the first day
+        // a dispatch can take off from readyAt until just before dueBy
+        long[] readyAt = new long[dispatches.size()];
+        long[] dueBy = new long[dispatches.size()];
+        for (int j = 0; j < dispatches.size(); j++) {
+            MedDispatchRec dispatch = dispatches.get(j);
+            long time = dispatch.getTime() == null ? 0 : dispatch.getTime().toNanoOfDay();
+            if (dispatch.getDate() == null) {
+                readyAt[j] = time;
+                dueBy[j] = days * NANOS_PER_DAY;
+            } else {
+                long day = java.time.temporal.ChronoUnit.DAYS.between(firstDay, dispatch.getDate());
+                readyAt[j] = day * NANOS_PER_DAY + time;
+                dueBy[j] = (day + 1) * NANOS_PER_DAY;
+            }
+        }
+
+        // the drones with any slot in the horizon, and their slots in order, built once for the whole request
+        AvailabilityIndex availabilityIndex = AvailabilityIndex.of(assignments);
+        List<Drone> fleet = new ArrayList<>();
+        List<List<long[]>> slots = new ArrayList<>();
+        List<Drone> ordered = cheapestFirst
+                ? orderCheapestFirst(drones, dispatches, servicePoints, assignments, restrictedAreas, limits)
+                : drones;
+        for (Drone drone : ordered) {
+            List<long[]> droneSlots = new ArrayList<>();
+            for (int day = 0; day < days; day++) {
+                for (Availability slot : availabilityIndex.slotsOf(drone.getId(), firstDay.plusDays(day).getDayOfWeek())) {
+                    droneSlots.add(new long[]{day * NANOS_PER_DAY + slot.getFrom().toNanoOfDay(),
+                            day * NANOS_PER_DAY + slot.getUntil().toNanoOfDay()});
                 }
+            }
+            if (!droneSlots.isEmpty()) {
+                fleet.add(drone);
+                slots.add(droneSlots);
+            }
+        }
+        tracer.stage("filter", filterStarted);
+
+        long planStarted = System.nanoTime();
+        long moveNanos = planningProperties.getMoveDuration().toNanos();
+        long turnaroundNanos = planningProperties.getSortieTurnaround().toNanos();
+        List<Sortie> sorties = new ArrayList<>();
+        Set<Integer> assignedDispatchIds = new HashSet<>();
+        // state each drone carries across the days
+        int droneCount = fleet.size();
+        int[] slot = new int[droneCount]; //the slot each drone is in, past the end once it has none left
+        long[] freeAt = new long[droneCount]; //when each drone can take off next
+        int[] sortiesFlown = new int[droneCount];
+        for (int i = 0; i < droneCount; i++) {
+            freeAt[i] = slots.get(i).get(0)[0];
+        }
 
-                // Calculate the actual path for this route (expensive operation)
-                DronePath dronePath = calculatePath(drone, servicePoint, route, restrictedAreas);
+        while (assignedDispatchIds.size() < dispatches.size()) {
+            int next = -1;
+            long nextTakeOff = 0;
+            for (int i = 0; i < droneCount; i++) {
+                long takeOff = earliestTakeOff(fleet.get(i), freeAt[i], dispatches, readyAt, dueBy, assignedDispatchIds);
+                if (takeOff < 0) {
+                    continue; // nothing left the drone can carry
+                }
+                // move on to the first slot that is still open at take off
+                List<long[]> droneSlots = slots.get(i);
+                while (slot[i] < droneSlots.size() && takeOff > droneSlots.get(slot[i])[1]) {
+                    slot[i]++;
+                    if (slot[i] < droneSlots.size()) {
+                        takeOff = Math.max(takeOff, droneSlots.get(slot[i])[0]);
+                    }
+                }
+                if (slot[i] == droneSlots.size()) {
+                    continue;
+                }
+                if (next < 0 || takeOff < nextTakeOff
+                        || (takeOff == nextTakeOff && sortiesFlown[i] > 0 && sortiesFlown[next] == 0)) {
+                    next = i;
+                    nextTakeOff = takeOff;
+                }
+            }
+            if (next < 0) {
+                break; // no drone has time left for the unassigned dispatches
+            }
 
-                // Validate the path against all constraints
-                int pathMoves = countMoves(dronePath);
+            Drone drone = fleet.get(next);
+            List<MedDispatchRec> ready = new ArrayList<>();
+            for (int j = 0; j < dispatches.size(); j++) {
+                if (readyAt[j] <= nextTakeOff && nextTakeOff < dueBy[j]) {
+                    ready.add(dispatches.get(j));
+                }
+            }
 
-                // Check maxMoves constraint FIRST (cheaper than cost calculation)
-                if (pathMoves > drone.getCapability().getMaxMoves()) {
+            DronePlan plan = planForDrone(drone, ready, assignedDispatchIds, servicePoints, assignments, restrictedAreas, limits,
+                    parallelLegs, tracer);
+            if (plan != null && plan.feasible()) {
+                long slotEnd = slots.get(next).get(slot[next])[1];
+                if (nextTakeOff + plan.moves() * moveNanos > slotEnd) {
+                    // too long for what is left of the slot, a shorter route of the same dispatches may still fit
+                    tracer.rejected(drone.getId(), plan.route(), "outside-slot", plan.moves(), plan.cost());
+                    int movesLeft = (int) Math.min(Integer.MAX_VALUE, (slotEnd - nextTakeOff) / moveNanos);
+                    plan = planForDrone(withMaxMoves(drone, movesLeft), ready, assignedDispatchIds, servicePoints,
+                            assignments, restrictedAreas, limits, parallelLegs, tracer);
+                }
+                if (plan != null && plan.feasible()) {
+                    long landing = nextTakeOff + plan.moves() * moveNanos;
+                    LocalDateTime dayStart = firstDay.atStartOfDay();
+                    sorties.add(new Sortie(plan, dayStart.plusNanos(nextTakeOff), dayStart.plusNanos(landing)));
+                    plan.route().forEach(d -> assignedDispatchIds.add(d.getId()));
+                    sortiesFlown[next]++;
+                    freeAt[next] = landing + turnaroundNanos;
                     continue;
                 }
+                // nothing fits what is left of the slot, try again when the next one opens
+                slot[next]++;
+                if (slot[next] < slots.get(next).size()) {
+                    freeAt[next] = Math.max(nextTakeOff, slots.get(next).get(slot[next])[0]);
+                }
+                continue;
+            }
 
-                // Only check cost if needed
-                boolean hasCostConstraint = route.stream()
-                        .anyMatch(d -> d.getRequirements().getMaxCost() != null);
+            // nothing the drone can fly now, it waits until another dispatch is ready
+            long nextReady = -1;
+            for (int j = 0; j < dispatches.size(); j++) {
+                if (!assignedDispatchIds.contains(dispatches.get(j).getId()) && readyAt[j] > nextTakeOff
+                        && (nextReady < 0 || readyAt[j] < nextReady)) {
+                    nextReady = readyAt[j];
+                }
+            }
+            if (nextReady < 0) {
+                slot[next] = slots.get(next).size();
+            } else {
+                freeAt[next] = nextReady;
+            }
+        }
+        tracer.stage("plan", planStarted);
+
+        return sorties;
+    }
+
+    /**
+     * the drone as it would be if it could fly no more than the given moves, so a route is built to fit them
+     * @param drone
+     * @param moves
+     * @return a copy of the drone with maxMoves capped at moves
+     */
+    private Drone withMaxMoves(Drone drone, int moves) {
+        Drone.Capability capability = drone.getCapability();
+        Integer maxMoves = capability.getMaxMoves() == null ? moves : Math.min(capability.getMaxMoves(), moves);
+        return new Drone(drone.getName(), drone.getId(), new Drone.Capability(capability.isCooling(), capability.isHeating(),
+                capability.getCapacity(), maxMoves, capability.getCostPerMove(), capability.getCostInitial(),
+                capability.getCostFinal()));
+    }
 
-                if (hasCostConstraint) {
-                    double pathCost = drone.getCapability().getCostInitial()
-                            + (pathMoves * drone.getCapability().getCostPerMove())
-                            + drone.getCapability().getCostFinal();
+    /**
+     * when a drone could take off on its next sortie, ignoring its slots
+     * @param readyAt when each dispatch can be flown from, in the scheduler's time
+     * @param dueBy when each dispatch can no longer be flown
+     * @return the earliest time from when the drone is free that some unassigned dispatch it can carry can be flown,
+     * or -1 if there is none
+     */
+    private long earliestTakeOff(Drone drone, long freeAt, List<MedDispatchRec> dispatches, long[] readyAt, long[] dueBy,
+                                 Set<Integer> assignedDispatchIds) {
+        long earliest = -1;
+        for (int j = 0; j < dispatches.size(); j++) {
+            MedDispatchRec dispatch = dispatches.get(j);
+            if (assignedDispatchIds.contains(dispatch.getId()) || !canDeliverSingleDispatch(drone, dispatch)) {
+                continue;
+            }
+            long takeOff = Math.max(freeAt, readyAt[j]);
+            if (takeOff < dueBy[j] && (earliest < 0 || takeOff < earliest)) {
+                earliest = takeOff;
+            }
+        }
+        return earliest;
+    }
 
-                    double totalMaxCostAllowed = route.stream()
-                            .filter(d -> d.getRequirements().getMaxCost() != null)
-                            .mapToDouble(d -> d.getRequirements().getMaxCost())
-                            .sum();
+    /**
+     * the plan another drone of the same profile built, with this drone's id on it
+     */
+    private DronePlan forDrone(DronePlan plan, Drone drone) {
+        if (plan == null || drone.getId().equals(plan.droneId())) {
+            return plan;
+        }
+        return new DronePlan(drone.getId(), plan.candidates(), plan.route(), plan.legs(), plan.moves(), plan.cost(),
+                plan.feasible());
+    }
 
-                    if (pathCost > totalMaxCostAllowed) {
-                        continue;
-                    }
+    /**
+     * ordering used to commit speculative plans, ties are broken by fleet order by the caller
+     */
+    private boolean isBetterPlan(DronePlan plan, DronePlan best) {
+        if (plan.route().size() != best.route().size()) {
+            return plan.route().size() > best.route().size();
+        }
+        return plan.cost() < best.cost();
+    }
 
-                    totalCost += pathCost;
-                } else {
-                    // Calculate cost for response
-                    double pathCost = drone.getCapability().getCostInitial()
-                            + (pathMoves * drone.getCapability().getCostPerMove())
-                            + drone.getCapability().getCostFinal();
-                    totalCost += pathCost;
-                }
+    /**
+     * a plan has to be rebuilt when its route uses a committed dispatch, or when losing candidates
+     * changes how many deliveries the route builder may attempt
+     */
+    private boolean isStale(DronePlan plan, Set<Integer> committedIds, Set<Integer> assignedDispatchIds, int maxDeliveries) {
+        for (MedDispatchRec dispatch : plan.route()) {
+            if (committedIds.contains(dispatch.getId())) {
+                return true;
+            }
+        }
+        int remaining = 0;
+        for (MedDispatchRec candidate : plan.candidates()) {
+            if (!assignedDispatchIds.contains(candidate.getId())) {
+                remaining++;
+            }
+        }
+        return Math.min(maxDeliveries, remaining) != Math.min(maxDeliveries, plan.candidates().size());
+    }
+
+    /**
+     * builds and paths a route for one drone over the unassigned dispatches, and checks it against maxMoves and maxCost
+     * @param parallel whether the legs of the route may be planned concurrently on the planning executor
+     * @return the plan (feasible or not), or null when the drone has no service point or nothing it can carry
+     */
+    private DronePlan planForDrone(Drone drone,
+                                   List<MedDispatchRec> dateDispatches,
+                                   Set<Integer> assignedDispatchIds,
+                                   List<ServicePoint> servicePoints,
+                                   List<DroneForServicePointResponse> assignments,
+                                   List<RestrictedArea> restrictedAreas,
+                                   PlanningLimits limits,
+                                   boolean parallel,
+                                   PlanTracer tracer) {
+        // Get the service point for this drone
+        ServicePoint servicePoint = getServicePointForDrone(drone.getId(), assignments, servicePoints);
+        if (servicePoint == null) {
+            tracer.rejected(drone.getId(), List.of(), "no-service-point", 0, 0);
+            return null;
+        }
+
+        // Find unassigned dispatches this drone can handle
+        List<MedDispatchRec> candidates = new ArrayList<>();
+        for (MedDispatchRec dispatch : dateDispatches) {
+            if (assignedDispatchIds.contains(dispatch.getId())) {
+                continue;
+            }
+
+            // Check basic capability requirements
+            if (!canDeliverSingleDispatch(drone, dispatch)) {
+                continue;
+            }
 
-                // Path is valid - add it to results
-                allDronePaths.add(dronePath);
-                totalMoves += pathMoves;
+            candidates.add(dispatch);
+        }
+
+        if (candidates.isEmpty()) {
+            tracer.rejected(drone.getId(), List.of(), "no-candidates", 0, 0);
+            return null;
+        }
+
+        // Build optimal multi-delivery route for this drone
+        List<MedDispatchRec> route = buildOptimalRoute(drone, servicePoint, dateDispatches, candidates, limits);
 
-                // Mark these dispatches as assigned
-                route.forEach(d -> assignedDispatchIds.add(d.getId()));
+        if (route.isEmpty()) {
+            tracer.rejected(drone.getId(), route, "empty-route", 0, 0);
+            return new DronePlan(drone.getId(), candidates, route, null, 0, 0, false);
+        }
+
+        // a route whose cheapest possible flight already breaks maxMoves or maxCost is turned away without a search
+        Double maxCostAllowed = maxCostAllowed(route);
+        Integer maxMoves = drone.getCapability().getMaxMoves();
+        if (maxMoves != null || maxCostAllowed != null) {
+            int minMoves = CostModel.of(restrictedAreas).minRouteMoves(routeStops(servicePoint, route));
+            double minCost = CostModel.cost(drone.getCapability(), minMoves);
+            if (maxMoves != null && minMoves > maxMoves) {
+                tracer.rejected(drone.getId(), route, "over-move-budget", minMoves, minCost);
+                return new DronePlan(drone.getId(), candidates, route, null, 0, 0, false);
+            }
+            if (maxCostAllowed != null && minCost > maxCostAllowed) {
+                tracer.rejected(drone.getId(), route, "max-cost-bound", minMoves, minCost);
+                return new DronePlan(drone.getId(), candidates, route, null, 0, 0, false);
             }
         }
 
-        return new CalcDeliveryPathResponse(totalCost, totalMoves, allDronePaths);
+        // Search the legs of this route (expensive operation), only their moves are kept until the route is accepted
+        List<LegPath> legs = calculatePath(drone, servicePoint, route, restrictedAreas, LegLimits.of(limits, drone, parallel), tracer);
+        if (legs == null) {
+            // a leg was proven not to fit maxMoves before it was fully searched
+            tracer.rejected(drone.getId(), route, "over-move-budget", 0, 0);
+            return new DronePlan(drone.getId(), candidates, route, null, 0, 0, false);
+        }
+
+        // Validate the path against all constraints
+        int pathMoves = countMoves(legs, route.size());
+
+        // Check maxMoves constraint FIRST (cheaper than cost calculation)
+        if (maxMoves != null && pathMoves > maxMoves) {
+            tracer.rejected(drone.getId(), route, "max-moves", pathMoves, 0);
+            return new DronePlan(drone.getId(), candidates, route, legs, pathMoves, 0, false);
+        }
+
+        double pathCost = CostModel.cost(drone.getCapability(), pathMoves);
+
+        // Only check cost if needed
+        if (maxCostAllowed != null && pathCost > maxCostAllowed) {
+            tracer.rejected(drone.getId(), route, "max-cost", pathMoves, pathCost);
+            return new DronePlan(drone.getId(), candidates, route, legs, pathMoves, pathCost, false);
+        }
+
+        return new DronePlan(drone.getId(), candidates, route, legs, pathMoves, pathCost, true);
+    }
+
+    /**
+     * the most a route may cost, the sum of the maxCost of its dispatches that have one
+     * @param route
+     * @return the total, or null when no dispatch on the route has a maxCost
+     */
+    private Double maxCostAllowed(List<MedDispatchRec> route) {
+        Double total = null;
+        for (MedDispatchRec dispatch : route) {
+            Double maxCost = dispatch.getRequirements().getMaxCost();
+            if (maxCost != null) {
+                total = total == null ? maxCost : total + maxCost;
+            }
+        }
+        return total;
     }
 
     /**
@@ -171,10 +788,19 @@ public class PathfindingService {
             return new ArrayList<>(allDrones);
         }
 
-        java.time.DayOfWeek dayOfWeek = date.getDayOfWeek();
+        // The drone must have a slot on this day that starts no later than the earliest dispatch time
+        java.time.LocalTime earliestTime = dateDispatches.stream()
+                .map(MedDispatchRec::getTime)
+                .filter(Objects::nonNull)
+                .min(java.time.LocalTime::compareTo)
+                .orElse(null);
+
+        AvailabilityIndex availabilityIndex = AvailabilityIndex.of(assignments);
+        BitSet availableIndexes = availabilityIndex.availableFromBy(date.getDayOfWeek(), earliestTime);
 
         for (Drone drone : allDrones) {
-            if (isDroneAvailableForDateGroup(drone, dayOfWeek, dateDispatches, assignments)) {
+            int index = availabilityIndex.indexOf(drone.getId());
+            if (index >= 0 && availableIndexes.get(index)) {
                 available.add(drone);
             }
         }
@@ -183,101 +809,180 @@ public class PathfindingService {
     }
 
     /**
-     * Checks if a drone is available for a date group.
-     * The drone must have availability on the day of week and its availability window
-     * must start before all dispatch times in the group.
-     */
-    private boolean isDroneAvailableForDateGroup(Drone drone,
-                                                   java.time.DayOfWeek dayOfWeek,
-                                                   List<MedDispatchRec> dateDispatches,
-                                                   List<DroneForServicePointResponse> assignments) {
-        // Find this drone's availability schedule
-        for (DroneForServicePointResponse assignment : assignments) {
-            for (DroneAvailability availability : assignment.getDrones()) {
-                if (availability.getId().equals(drone.getId())) {
-                    // Check if drone has any availability slots for this day of week
-                    for (Availability slot : availability.getAvailability()) {
-                        if (slot.getDayOfWeek() == dayOfWeek) {
-                            // Drone has availability on this day
-                            // Check if it can deliver before all required times
-                            java.time.LocalTime droneAvailableFrom = slot.getFrom();
-
-                            // Check if drone is available before all dispatch times
-                            boolean canDeliverAll = true;
-                            for (MedDispatchRec dispatch : dateDispatches) {
-                                if (dispatch.getTime() != null) {
-                                    // Drone must be available before the dispatch time
-                                    if (droneAvailableFrom.isAfter(dispatch.getTime())) {
-                                        canDeliverAll = false;
-                                        break;
-                                    }
-                                }
-                            }
-
-                            if (canDeliverAll) {
-                                return true; // This time slot works
-                            }
-                        }
-                    }
-                    return false; // Drone found but no suitable time slot
-                }
-            }
-        }
-        return false; // Drone not found in assignments
-    }
-
-    /**
-     * Counts the number of moves (transitions) in a drone's path.
-     * Each move is a transition between two consecutive positions.
-     * @param path
+     * Counts the number of moves (transitions) the drone's path will have once materialised.
+     * every outbound leg ends with the delivery position twice, which adds two moves per delivery
+     * @param legs
+     * @param deliveries
      * @return
      */
-    private int countMoves(DronePath path) {
-        int moves = 0;
-        for (Delivery delivery : path.getDeliveries()) {
-            int positions = delivery.getFlightPath().size();
-            // Moves = transitions between positions
-            if (positions > 0) {
-                moves += positions - 1;
-            }
+    private int countMoves(List<LegPath> legs, int deliveries) {
+        int moves = 2 * deliveries;
+        for (LegPath leg : legs) {
+            moves += leg.moves();
         }
         return moves;
     }
 
     /**
-     *calculates flight path for a single drone visiting multiple deliveries
+     *calculates the legs for a single drone visiting multiple deliveries, without building their positions
      * @param drone
      * @param sp
      * @param dispatches
      * @param restrictedAreas
-     * @return
+     * @param legLimits search budgets for the drone's legs
+     * @param tracer
+     * @return one leg per delivery then the return leg, or null if some leg cannot be flown within the drone's maxMoves
+     */
+    private List<LegPath> calculatePath(Drone drone, ServicePoint sp, List<MedDispatchRec> dispatches, List<RestrictedArea> restrictedAreas,
+                                        LegLimits legLimits, PlanTracer tracer){
+        // every leg starts at the previous delivery point, so once the order is fixed the legs are independent
+        List<Position> stops = routeStops(sp, dispatches);
+
+        int[] moveBudgets = legMoveBudgets(stops, drone.getCapability().getMaxMoves(), dispatches.size());
+        List<LegPath> legs = calculateLegs(drone.getId(), stops, restrictedAreas, legLimits, moveBudgets, tracer);
+        return legs.contains(LegPath.OVER_BUDGET) ? null : legs;
+    }
+
+    /**
+     * @return the service point, every delivery in route order, then the service point again
      */
-    private DronePath calculatePath(Drone drone, ServicePoint sp, List<MedDispatchRec> dispatches, List<RestrictedArea> restrictedAreas){
-        List<Delivery> deliveries = new ArrayList<>();
-        Position current = sp.getLocation();
+    private List<Position> routeStops(ServicePoint sp, List<MedDispatchRec> route){
+        List<Position> stops = new ArrayList<>(route.size() + 2);
+        stops.add(sp.getLocation());
+        for (MedDispatchRec dispatch : route) {
+            stops.add(dispatch.getDelivery());
+        }
+        stops.add(sp.getLocation());
+        return stops;
+    }
 
-        for (int i = 0; i < dispatches.size(); i++) {
-            MedDispatchRec dispatch = dispatches.get(i);
-            List<Position> flightPath = calculateFlightPath(current, dispatch.getDelivery(), restrictedAreas);
+    /**
+     * builds the flight path of an accepted plan by replaying the moves of its legs
+     * @param plan
+     * @return
+     */
+    private DronePath materialise(DronePlan plan){
+        List<MedDispatchRec> route = plan.route();
+        List<Delivery> deliveries = new ArrayList<>(route.size() + 1);
+        for (int i = 0; i < route.size(); i++) {
+            MedDispatchRec dispatch = route.get(i);
+            List<Position> flightPath = positions(plan.legs().get(i), 2);
 
             // Add TWO duplicate positions at the end to mark delivery being made
             flightPath.add(dispatch.getDelivery());
             flightPath.add(dispatch.getDelivery());
 
             deliveries.add(new Delivery(dispatch.getId(), flightPath));
+        }
+
+        // Return path to service point as a separate delivery with null ID
+        deliveries.add(new Delivery(null, positions(plan.legs().get(route.size()), 0)));
+
+        return new DronePath(plan.droneId(), deliveries);
+    }
+
+    /**
+     * the positions of a leg, from its start through every move
+     * @param leg
+     * @param extraCapacity room left for positions the caller appends
+     * @return
+     */
+    private List<Position> positions(LegPath leg, int extraCapacity){
+        List<Position> path = new ArrayList<>(leg.moves() + 1 + extraCapacity);
+        Position current = leg.start();
+        path.add(current);
+        for (int i = 0; i < leg.moves(); i++) {
+            current = distanceService.nextPosition(current, VALID_ANGLES[leg.direction(i)]);
+            path.add(current);
+        }
+        return path;
+    }
+
+    /**
+     * the most moves each leg may take for the route to stay within maxMoves, assuming every other leg
+     * flies its straight line lower bound, each delivery also takes two moves for its drop-off markers
+     * @param stops service point, deliveries, service point
+     * @param maxMoves the drone's maxMoves, null for no limit
+     * @param deliveries number of deliveries on the route
+     * @return one budget per leg, negative when the route cannot fit at all
+     */
+    private int[] legMoveBudgets(List<Position> stops, Integer maxMoves, int deliveries){
+        int legCount = stops.size() - 1;
+        int[] budgets = new int[legCount];
+        if (maxMoves == null) {
+            Arrays.fill(budgets, Integer.MAX_VALUE);
+            return budgets;
+        }
+        int[] lowerBounds = new int[legCount];
+        long total = 0;
+        for (int i = 0; i < legCount; i++) {
+            lowerBounds[i] = minMoves(stops.get(i), stops.get(i + 1));
+            total += lowerBounds[i];
+        }
+        for (int i = 0; i < legCount; i++) {
+            budgets[i] = (int) Math.max(-1, maxMoves - 2L * deliveries - (total - lowerBounds[i]));
+        }
+        return budgets;
+    }
+
+    /**
+     * fewest moves that can take a drone from one position to within the close distance of another
+     * rounded down, so it never overestimates even with floating point error
+     */
+    private int minMoves(Position from, Position to){
+        double moves = (distanceService.euclideanDistance(from, to) - CLOSE_DISTANCE) / MOVE_DISTANCE;
+        return moves <= 0 ? 0 : (int) Math.floor(moves);
+    }
 
-            // Next delivery starts at this delivery point
-            current = dispatch.getDelivery();
+    /**
+     * calculates the flight path between each pair of consecutive stops
+     * legs are planned concurrently on virtual threads when parallel legs are enabled, the result is in stop order
+     * @param droneId the drone flying the legs, only used for the trace
+     * @param stops
+     * @param restrictedAreas
+     * @param legLimits
+     * @param moveBudgets most moves each leg may take
+     * @param tracer
+     * @return one leg per pair of stops, {@link LegPath#OVER_BUDGET} for a leg that cannot fit its budget
+     */
+    private List<LegPath> calculateLegs(String droneId, List<Position> stops, List<RestrictedArea> restrictedAreas,
+                                               LegLimits legLimits, int[] moveBudgets, PlanTracer tracer){
+        int legCount = stops.size() - 1;
+        List<LegPath> legs = new ArrayList<>(legCount);
+
+        if (!legLimits.parallel() || legCount < 2) {
+            for (int i = 0; i < legCount; i++) {
+                legs.add(calculateLeg(droneId, i, stops.get(i), stops.get(i + 1), restrictedAreas, legLimits, moveBudgets[i], tracer));
+            }
+            return legs;
         }
 
-        // Calculate return path to service point as a separate delivery with null ID
-        List<Position> returnPath = calculateFlightPath(current, sp.getLocation(), restrictedAreas);
-        if (!returnPath.isEmpty()) {
-            // Create separate Delivery object with deliveryId = null for return journey
-            deliveries.add(new Delivery(null, returnPath));
+        List<CompletableFuture<LegPath>> futures = new ArrayList<>(legCount);
+        for (int i = 0; i < legCount; i++) {
+            int index = i;
+            Position from = stops.get(i);
+            Position to = stops.get(i + 1);
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> calculateLeg(droneId, index, from, to, restrictedAreas, legLimits, moveBudgets[index], tracer),
+                    planningExecutor));
         }
+        for (CompletableFuture<LegPath> future : futures) {
+            legs.add(future.join());
+        }
+        return legs;
+    }
 
-        return new DronePath(drone.getId(), deliveries);
+    /**
+     * plans one leg and reports it to the tracer
+     */
+    private LegPath calculateLeg(String droneId, int index, Position from, Position to,
+                                 List<RestrictedArea> restrictedAreas, LegLimits legLimits, int moveBudget,
+                                 PlanTracer tracer){
+        long started = System.nanoTime();
+        PlanTrace.LegTrace leg = tracer.startLeg(droneId, index);
+        LegPath path = calculateFlightPath(from, to, restrictedAreas, legLimits, moveBudget, leg);
+        tracer.finishLeg(leg, path.moves(), started);
+        return path;
     }
 
     /**
@@ -286,95 +991,172 @@ public class PathfindingService {
      * @param start
      * @param end
      * @param restrictedAreas
-     * @return
+     * @param legLimits search budgets of the drone flying the leg
+     * @param moveBudget most moves the leg may take, A* prunes anything that cannot reach the goal within it
+     * @param leg filled in with the planner that found the path and the A* nodes expanded, null when not tracing
+     * @return the path, or {@link LegPath#OVER_BUDGET} if no path can fit the move budget
      */
-    private List<Position> calculateFlightPath(Position start, Position end, List<RestrictedArea> restrictedAreas){
+    private LegPath calculateFlightPath(Position start, Position end, List<RestrictedArea> restrictedAreas,
+                                        LegLimits legLimits, int moveBudget, PlanTrace.LegTrace leg){
+        // even the straight line is too long, nothing to search
+        if (minMoves(start, end) > moveBudget) {
+            tracePlanner(leg, "over-budget");
+            return LegPath.OVER_BUDGET;
+        }
+        //a greedy path that runs out of steps is over budget and gets rejected
+        int greedySteps = (int) Math.min(legLimits.greedySteps(), moveBudget + 2L);
+
         // Quick check: if no restricted areas, use simple greedy path
         if (restrictedAreas.isEmpty()) {
-            return fallbackGreedyPath(start, end, restrictedAreas);
+            tracePlanner(leg, "straight");
+            return fallbackGreedyPath(start, end, restrictedAreas, greedySteps);
+        }
+
+        // Try the local planner first - it's much faster and gives up early when it is stuck
+        LegPath localPath = localPlannerPath(start, end, restrictedAreas, legLimits, moveBudget);
+        if (localPath != null) {
+            tracePlanner(leg, "local");
+            return localPath;
         }
 
-        // Try greedy path first - it's much faster
-        List<Position> greedyPath = fallbackGreedyPath(start, end, restrictedAreas);
-        if (!greedyPath.isEmpty() && greedyPath.size() < 10000) {
-            // Greedy found a reasonable path, use it
-            return greedyPath;
+        // Fall back to A* only if the local planner fails
+        //node table and open set come from a pooled workspace instead of fresh collections every leg
+        SearchWorkspace workspace = SearchWorkspace.acquire();
+        try {
+            LegPath path = aStarPath(start, end, restrictedAreas, legLimits.astarIterations(), moveBudget, workspace);
+            if (leg != null) {
+                leg.setNodesExpanded(workspace.getExpanded());
+            }
+            if (path == LegPath.OVER_BUDGET) {
+                tracePlanner(leg, "over-budget");
+                return path;
+            }
+            if (path != null) {
+                tracePlanner(leg, "astar");
+                return path;
+            }
+        } finally {
+            SearchWorkspace.release(workspace);
+        }
+
+        // if A* dosent find path, fallback search
+        tracePlanner(leg, "greedy");
+        return fallbackGreedyPath(start, end, restrictedAreas, greedySteps);
+    }
+
+    private void tracePlanner(PlanTrace.LegTrace leg, String planner){
+        if (leg != null) {
+            leg.setPlanner(planner);
         }
+    }
 
-        // Fall back to A* only if greedy fails
-        //queue to track nodes to be visited
-        PriorityQueue<Node> openSet = new PriorityQueue<>((a,b) -> Double.compare(a.f, b.f));
-        //visited nodes set
-        HashSet<String> closedSet = new HashSet<>();
-        //all nodes, for updating when better path found
-        Map<String, Node> allNodes = new HashMap<>();
+    /**
+     * the A* search itself, run inside a cleared workspace
+     * @param start
+     * @param end
+     * @param restrictedAreas
+     * @param maxIterations most nodes the search may expand
+     * @param moveBudget most moves the path may take, nodes that cannot reach the goal within it are pruned
+     * @param workspace
+     * @return the path, {@link LegPath#OVER_BUDGET} if every path left was pruned by the move budget,
+     * or null if no path was found within the iteration limit
+     */
+    private LegPath aStarPath(Position start, Position end, List<RestrictedArea> restrictedAreas, int maxIterations,
+                                     int moveBudget, SearchWorkspace workspace){
+        //bounding boxes of the restricted areas, only needed when pruning symmetric neighbours
+        ObstacleBounds bounds = jumpPointSearch ? ObstacleBounds.of(restrictedAreas) : null;
 
         //starting Node
-        Node startNode = new Node(start, null, 0, heuristic(start, end));
-        openSet.add(startNode);
-        allNodes.put(posKey(start), startNode);
+        Node startNode = workspace.add(SearchWorkspace.key(start), start, null, 0, heuristic(start, end));
+        workspace.push(startNode);
 
-        // Reduced iteration limit for faster performance
-        int maxIterations = 50000;
         int iterations = 0;
+        boolean pruned = false;
 
-        while(!openSet.isEmpty() && iterations < maxIterations){
+        while(iterations < maxIterations){
+            //checks node with the lowest f(n)
+            Node current = workspace.poll();
+            if (current == null){
+                // open set exhausted, if the budget cut anything off no path fits it
+                return pruned ? LegPath.OVER_BUDGET : null;
+            }
             iterations++;
 
-            //checks node with the lowest f(n)
-            Node current = openSet.poll();
             //check if we have reached the destination
             if(distanceService.isCloseTo(current.pos, end)){
                 return reconstructPath(current);
             }
             //mark the node as visited
-            String currentKey = posKey(current.pos);
-            closedSet.add(currentKey);
+            current.closed = true;
+
+            // explore the 16 compass directions from the current position
+            // in jump point mode only the natural directions are explored while in open airspace
+            for (int direction = 0; direction < VALID_ANGLES.length; direction++){
+                if (bounds != null && !isNaturalDirection(current, direction, end, bounds)){
+                    continue;
+                }
 
-            // explore all 16 compass directions from the current position
-            for (double angle : VALID_ANGLES){
-                Position neighbor = distanceService.nextPosition(current.pos, angle);
-                String neighborKey = posKey(neighbor);
+                Position neighbor;
+                int steps;
+                if (bounds != null){
+                    JumpPoint jumpPoint = jump(current.pos, direction, end, restrictedAreas, bounds);
+                    if (jumpPoint == null){
+                        continue;
+                    }
+                    neighbor = jumpPoint.pos();
+                    steps = jumpPoint.steps();
+                } else {
+                    neighbor = distanceService.nextPosition(current.pos, VALID_ANGLES[direction]);
+                    steps = 1;
+                }
+                long neighborKey = SearchWorkspace.key(neighbor);
+                Node neighborNode = workspace.get(neighborKey);
 
                 // skip if the node is already visited, prevents loops
-                if (closedSet.contains(neighborKey)){
+                if (neighborNode != null && neighborNode.closed){
                     continue;
                 }
 
                 // check if the move would violate restricted area, either is inside it or path would cross through it
-                if (isBlocked(current.pos, neighbor, restrictedAreas)){
+                // jumps are already checked move by move
+                if (bounds == null && isBlocked(current.pos, neighbor, restrictedAreas)){
                     continue;
                 }
 
-                // calculate cost to move to neighbour
-                double moveCost = distanceService.euclideanDistance(current.pos, neighbor);
+                // calculate cost to move to neighbour, every move has the same length
+                double moveCost = steps * MOVE_DISTANCE;
                 double tentativeG = current.g + moveCost;
 
-                Node neighborNode = allNodes.get(neighborKey);
+                // moves so far plus the fewest moves still needed, over the budget means the path can never be used
+                if (Math.round(tentativeG / MOVE_DISTANCE) + minMoves(neighbor, end) > moveBudget){
+                    pruned = true;
+                    continue;
+                }
 
                 // either unvisited or there is better path
                 if (neighborNode == null){
                     //unvisited node
                     double h = heuristic(neighbor, end);
-                    neighborNode = new Node(neighbor, current, tentativeG, h);
-                    //add to sets
-                    allNodes.put(neighborKey, neighborNode);
-                    openSet.add(neighborNode);
+                    neighborNode = workspace.add(neighborKey, neighbor, current, tentativeG, h);
+                    neighborNode.direction = direction;
+                    neighborNode.steps = steps;
+                    workspace.push(neighborNode);
                 } else if (tentativeG < neighborNode.g){
-                    //cheaper path found
+                    //cheaper path found, positions sharing a key can differ slightly so keep the one this parent reaches
+                    neighborNode.pos = neighbor;
                     neighborNode.parent = current;
+                    neighborNode.direction = direction;
+                    neighborNode.steps = steps;
                     neighborNode.g = tentativeG;
                     neighborNode.f = neighborNode.g + neighborNode.h;
 
-                    // update the priority queue with new cost
-                    openSet.remove(neighborNode);
-                    openSet.add(neighborNode);
+                    // push again with the new cost, the old entry is skipped when polled
+                    workspace.push(neighborNode);
                 }
             }
         }
 
-        // if A* dosent find path, fallback search
-        return fallbackGreedyPath(start, end, restrictedAreas);
+        return null;
     }
 
     /**
@@ -390,45 +1172,225 @@ public class PathfindingService {
 
     /**
      * reconstructs the path by following node parent pointer from the goal to the start
+     * every node's position is its parent's moved along its direction, so the directions are all the leg needs
      * @param node
      * @return
      */
-    private List<Position> reconstructPath(Node node){
-        List<Position> path = new ArrayList<>();
-        Node current = node;
+    private LegPath reconstructPath(Node node){
+        // count the moves first so the directions can be filled in backwards in one array
+        int moves = 0;
+        Node start = node;
+        for (; start.parent != null; start = start.parent){
+            moves += start.steps;
+        }
 
-        while (current != null){
-            path.add(0, current.pos);
-            current = current.parent;
+        // a jump covers several moves in the same direction, each of them is kept
+        byte[] directions = new byte[moves];
+        for (Node current = node; current.parent != null; current = current.parent){
+            for (int step = 0; step < current.steps; step++){
+                directions[--moves] = (byte) current.direction;
+            }
         }
 
-        return path;
+        return new LegPath(start.pos, directions);
+    }
+
+    /**
+     * decides whether a direction has to be explored from a node in jump point mode
+     * nodes near a restricted area and the start node explore every direction (forced neighbours),
+     * nodes in open airspace only keep going straight, turn by one compass step or head for the goal
+     * @param node
+     * @param direction index into VALID_ANGLES
+     * @param goal
+     * @param bounds
+     * @return
+     */
+    private boolean isNaturalDirection(Node node, int direction, Position goal, ObstacleBounds bounds){
+        if (node.direction < 0 || bounds.isNear(node.pos)){
+            return true;
+        }
+        int turn = Math.floorMod(direction - node.direction, VALID_ANGLES.length);
+        if (turn == 0 || turn == 1 || turn == VALID_ANGLES.length - 1){
+            return true;
+        }
+        return direction == directionTowards(node.pos, goal);
+    }
+
+    /**
+     * moves in a straight line from a position until something interesting happens:
+     * the goal is reached, a restricted area is close, or the compass direction towards the goal changes
+     * every position on the way is equivalent to the straight line so none of them are added to the open set
+     * @param from
+     * @param direction index into VALID_ANGLES
+     * @param goal
+     * @param restrictedAreas
+     * @param bounds
+     * @return the jump point and the number of moves taken, or null if the first move is blocked
+     */
+    private JumpPoint jump(Position from, int direction, Position goal, List<RestrictedArea> restrictedAreas, ObstacleBounds bounds){
+        Position pos = from;
+        int steps = 0;
+
+        while (steps < MAX_JUMP_STEPS){
+            boolean open = !bounds.isNear(pos);
+            Position next = distanceService.nextPosition(pos, VALID_ANGLES[direction]);
+            // a move starting in open airspace can never reach a restricted area, so only check moves near one
+            if (!open && isBlocked(pos, next, restrictedAreas)){
+                break;
+            }
+            pos = next;
+            steps++;
+
+            if (!open || bounds.isNear(pos) || distanceService.isCloseTo(pos, goal)){
+                break;
+            }
+            if (directionTowards(pos, goal) != direction){
+                break;
+            }
+        }
+
+        if (steps == 0){
+            return null;
+        }
+        return new JumpPoint(pos, steps);
+    }
+
+    /**
+     * the compass direction closest to the straight line bearing from one position to another
+     * @param from
+     * @param to
+     * @return index into VALID_ANGLES
+     */
+    private int directionTowards(Position from, Position to){
+        // nextPosition moves lat by sin(angle) and lng by cos(angle)
+        double bearing = Math.toDegrees(Math.atan2(to.getLat() - from.getLat(), to.getLng() - from.getLng()));
+        return Math.floorMod(Math.round(bearing / 22.5), VALID_ANGLES.length);
     }
 
 
-    private List<Position> fallbackGreedyPath(Position start, Position end, List<RestrictedArea> restrictedAreas){
-        List<Position> path = new ArrayList<>();
+    /**
+     * bug style local planner, heads straight for the goal like the greedy search and follows the
+     * boundary of a restricted area (keeping it on the right) whenever no move gets closer to the goal
+     * it leaves the boundary once the goal direction is free and it is closer than where it hit the boundary
+     * gives up as soon as it revisits a position or runs past a step budget proportional to the distance,
+     * so oscillating near concave zones is handed over to A* straight away
+     * @param start
+     * @param end
+     * @param restrictedAreas
+     * @param legLimits step budget of the planner
+     * @param moveBudget most moves the leg may take, a longer boundary walk could never be used
+     * @return the path, or null if the planner gave up
+     */
+    private LegPath localPlannerPath(Position start, Position end, List<RestrictedArea> restrictedAreas,
+                                     LegLimits legLimits, int moveBudget){
+        LegPath path = new LegPath(start);
+        Set<VisitKey> visited = new HashSet<>();
         Position current = start;
-        path.add(current);
 
-        int maxIterations = 10000; // Reduced for faster performance
+        int maxSteps = (int) Math.min(moveBudget + 1L,
+                (int) (legLimits.localStepFactor() * distanceService.euclideanDistance(start, end) / MOVE_DISTANCE)
+                        + legLimits.localStepSlack());
+        int wallDirection = -1; //direction of the last move while following a boundary, -1 when heading for the goal
+        double hitDistance = 0; //distance to the goal when the boundary was hit
 
-        while (!distanceService.isCloseTo(current, end) && path.size() < maxIterations){
-            double bestAngle = findBestAngle(current, end, restrictedAreas);
-            current = distanceService.nextPosition(current, bestAngle);
-            path.add(current);
+        while (!distanceService.isCloseTo(current, end)){
+            if (path.moves() + 1 > maxSteps){
+                return null;
+            }
+
+            int direction;
+            double distance = distanceService.euclideanDistance(current, end);
+            if (wallDirection < 0){
+                direction = closerDirection(current, end, distance, restrictedAreas);
+                if (direction < 0){
+                    // no move gets closer, start following the boundary
+                    hitDistance = distance;
+                    direction = followBoundary(current, directionTowards(current, end), restrictedAreas);
+                    wallDirection = direction;
+                }
+            } else {
+                int goalDirection = directionTowards(current, end);
+                Position towardsGoal = distanceService.nextPosition(current, VALID_ANGLES[goalDirection]);
+                if (distance < hitDistance && !isBlocked(current, towardsGoal, restrictedAreas)){
+                    // boundary cleared, head for the goal again
+                    wallDirection = -1;
+                    direction = goalDirection;
+                } else {
+                    // turn towards the boundary first so the planner keeps hugging it
+                    direction = followBoundary(current, wallDirection - VALID_ANGLES.length / 4, restrictedAreas);
+                    wallDirection = direction;
+                }
+            }
+
+            if (direction < 0){
+                return null; // boxed in
+            }
+
+            current = distanceService.nextPosition(current, VALID_ANGLES[direction]);
+            // revisiting a position in the same mode means the planner is going round in circles,
+            // keyed on the exact coordinates as distinct lattice points can be closer than any rounding
+            if (!visited.add(new VisitKey(current.getLat(), current.getLng(), wallDirection >= 0))){
+                return null;
+            }
+            path.add(direction);
         }
 
         return path;
     }
 
     /**
-     * converts a position into a string key allowing position to be used for hashmap key
-     * @param p
-     * @return
+     * the unblocked compass direction that gets closest to the target, as long as it is closer than now
+     * @param current
+     * @param target
+     * @param currentDistance distance from current to the target
+     * @param restrictedAreas
+     * @return index into VALID_ANGLES, or -1 if no move gets closer
+     */
+    private int closerDirection(Position current, Position target, double currentDistance, List<RestrictedArea> restrictedAreas){
+        int bestDirection = -1;
+        double minDistance = currentDistance;
+
+        for (int direction = 0; direction < VALID_ANGLES.length; direction++){
+            Position nextPos = distanceService.nextPosition(current, VALID_ANGLES[direction]);
+            double distToTarget = distanceService.euclideanDistance(nextPos, target);
+            if (distToTarget < minDistance && !isBlocked(current, nextPos, restrictedAreas)){
+                minDistance = distToTarget;
+                bestDirection = direction;
+            }
+        }
+
+        return bestDirection;
+    }
+
+    /**
+     * sweeps anticlockwise from a direction and returns the first unblocked one
+     * @param current
+     * @param fromDirection index into VALID_ANGLES, may be out of range
+     * @param restrictedAreas
+     * @return index into VALID_ANGLES, or -1 if every direction is blocked
      */
-    private String posKey(Position p){
-        return Math.round(p.getLat() * 1e4) + "," + Math.round(p.getLng() * 1e4);
+    private int followBoundary(Position current, int fromDirection, List<RestrictedArea> restrictedAreas){
+        for (int i = 0; i < VALID_ANGLES.length; i++){
+            int direction = Math.floorMod(fromDirection + i, VALID_ANGLES.length);
+            Position nextPos = distanceService.nextPosition(current, VALID_ANGLES[direction]);
+            if (!isBlocked(current, nextPos, restrictedAreas)){
+                return direction;
+            }
+        }
+        return -1;
+    }
+
+    private LegPath fallbackGreedyPath(Position start, Position end, List<RestrictedArea> restrictedAreas, int maxIterations){
+        LegPath path = new LegPath(start);
+        Position current = start;
+
+        while (!distanceService.isCloseTo(current, end) && path.moves() + 1 < maxIterations){
+            int bestDirection = findBestDirection(current, end, restrictedAreas);
+            current = distanceService.nextPosition(current, VALID_ANGLES[bestDirection]);
+            path.add(bestDirection);
+        }
+
+        return path;
     }
 
     /**
@@ -437,14 +1399,14 @@ public class PathfindingService {
      * @param current
      * @param target
      * @param restrictedAreas
-     * @return
+     * @return index into VALID_ANGLES, the first one if every direction is blocked
      */
-    private double findBestAngle(Position current, Position target, List<RestrictedArea> restrictedAreas){
-        double bestAngle = 0;
+    private int findBestDirection(Position current, Position target, List<RestrictedArea> restrictedAreas){
+        int bestDirection = 0;
         double minDistance = Double.MAX_VALUE;
 
-        for (double angle : VALID_ANGLES){
-            Position nextPos = distanceService.nextPosition(current, angle);
+        for (int direction = 0; direction < VALID_ANGLES.length; direction++){
+            Position nextPos = distanceService.nextPosition(current, VALID_ANGLES[direction]);
 
             if (isBlocked(current, nextPos, restrictedAreas)){
                 continue;
@@ -454,11 +1416,11 @@ public class PathfindingService {
 
             if (distToTarget < minDistance){
                 minDistance = distToTarget;
-                bestAngle = angle;
+                bestDirection = direction;
             }
         }
 
-        return bestAngle;
+        return bestDirection;
     }
 
     /**
@@ -551,6 +1513,17 @@ public class PathfindingService {
      * @param servicePoints All available service points
      * @return The service point for this drone, or null if not found
      */
+    private Integer getServicePointIdForDrone(String droneId, List<DroneForServicePointResponse> assignments) {
+        for (DroneForServicePointResponse assignment : assignments) {
+            for (DroneAvailability availability : assignment.getDrones()) {
+                if (availability.getId().equals(droneId)) {
+                    return assignment.getServicePointId();
+                }
+            }
+        }
+        return null;
+    }
+
     private ServicePoint getServicePointForDrone(String droneId,
                                                   List<DroneForServicePointResponse> assignments,
                                                   List<ServicePoint> servicePoints) {
@@ -570,51 +1543,78 @@ public class PathfindingService {
 
 
 
+    /**
+     * greedy nearest neighbour route from the service point over the candidates, within the drone's capacity
+     * and an estimate of its maxMoves, longer candidate lists are searched through a {@link DispatchGrid}
+     * of all the dispatches, shared by every drone, which picks exactly the candidate the scan would
+     * @param drone
+     * @param servicePoint
+     * @param dispatches the dispatches being planned
+     * @param candidates the ones the drone could take, in the same order
+     * @param limits
+     * @return
+     */
     private List<MedDispatchRec> buildOptimalRoute(Drone drone,
                                                      ServicePoint servicePoint,
+                                                     List<MedDispatchRec> dispatches,
                                                      List<MedDispatchRec> candidates,
-                                                     List<RestrictedArea> restrictedAreas) {
+                                                     PlanningLimits limits) {
         List<MedDispatchRec> route = new ArrayList<>();
         Set<Integer> used = new HashSet<>();
         Position current = servicePoint.getLocation();
         double accumulatedCapacity = 0;
         int estimatedMoves = 0;
+        DispatchGrid grid = candidates.size() >= DispatchGrid.MIN_CANDIDATES ? DispatchGrid.of(dispatches) : null;
+        boolean[] mask = grid == null ? null : grid.mask(candidates);
+        // a drone without maxMoves can fly any route, so nothing is turned away by the move estimate
+        Integer maxMoves = drone.getCapability().getMaxMoves();
+        double moveLimit = maxMoves == null ? Double.POSITIVE_INFINITY : maxMoves * limits.moveSafetyFactor();
 
         // Performance optimization: limit multi-delivery attempts
         // Try single delivery first (fastest), then attempt multi-delivery
-        int maxDeliveriesPerDrone = Math.min(3, candidates.size()); // Limit to 3 deliveries max
+        int maxDeliveriesPerDrone = Math.min(limits.maxDeliveriesPerDrone(), candidates.size());
 
         // Greedy nearest-neighbor selection
         while (route.size() < maxDeliveriesPerDrone && route.size() < candidates.size()) {
             MedDispatchRec nearest = null;
             double minDistance = Double.MAX_VALUE;
 
-            for (MedDispatchRec candidate : candidates) {
-                if (used.contains(candidate.getId())) {
-                    continue;
-                }
-
-                // Check capacity constraint FIRST (cheap check)
-                double newCapacity = accumulatedCapacity + candidate.getRequirements().getCapacity();
-                if (newCapacity > drone.getCapability().getCapacity()) {
-                    continue; // Would exceed drone capacity
+            if (mask != null) {
+                // a candidate needs at least distance / 0.00015 moves to reach, so none further than the moves left
+                // (plus one for rounding) can pass the estimate
+                int movesSoFar = estimatedMoves;
+                double maxDistance = (moveLimit - movesSoFar + 1) * 0.00015;
+                nearest = grid.nearest(mask, current, distanceService, maxDistance, accumulatedCapacity,
+                        drone.getCapability().getCapacity(), used,
+                        (candidate, distance) -> withinMoveEstimate(candidate, distance, movesSoFar, servicePoint, moveLimit));
+                if (nearest != null) {
+                    minDistance = distanceService.euclideanDistance(current, nearest.getDelivery());
                 }
+            } else {
+                for (MedDispatchRec candidate : candidates) {
+                    if (used.contains(candidate.getId())) {
+                        continue;
+                    }
 
-                // Estimate distance (Euclidean as lower bound)
-                double distance = distanceService.euclideanDistance(current, candidate.getDelivery());
+                    // Check capacity constraint FIRST (cheap check)
+                    double newCapacity = accumulatedCapacity + candidate.getRequirements().getCapacity();
+                    if (newCapacity > drone.getCapability().getCapacity()) {
+                        continue; // Would exceed drone capacity
+                    }
 
-                // Early check: would this exceed move budget?
-                double estMovesToTarget = distance / 0.00015;
-                double estReturnMoves = distanceService.euclideanDistance(candidate.getDelivery(), servicePoint.getLocation()) / 0.00015;
+                    // Estimate distance (Euclidean as lower bound)
+                    double distance = distanceService.euclideanDistance(current, candidate.getDelivery());
 
-                if (estimatedMoves + estMovesToTarget + estReturnMoves > drone.getCapability().getMaxMoves() * 0.9) {
-                    // Would likely exceed moves, skip
-                    continue;
-                }
+                    // Early check: would this exceed move budget?
+                    if (!withinMoveEstimate(candidate, distance, estimatedMoves, servicePoint, moveLimit)) {
+                        // Would likely exceed moves, skip
+                        continue;
+                    }
 
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    nearest = candidate;
+                    if (distance < minDistance) {
+                        minDistance = distance;
+                        nearest = candidate;
+                    }
                 }
             }
 
@@ -627,7 +1627,7 @@ public class PathfindingService {
             double returnDistance = distanceService.euclideanDistance(nearest.getDelivery(), servicePoint.getLocation());
             double returnMoves = returnDistance / 0.00015;
 
-            if (estimatedMoves + distMoves + returnMoves > drone.getCapability().getMaxMoves()) {
+            if (maxMoves != null && estimatedMoves + distMoves + returnMoves > maxMoves) {
                 // Would exceed budget, stop here
                 break;
             }
@@ -643,13 +1643,30 @@ public class PathfindingService {
         return route;
     }
 
+    /**
+     * whether flying to a candidate and straight back to the service point is estimated to stay within the move limit
+     * @param candidate
+     * @param distance from the current position to the candidate
+     * @param estimatedMoves moves estimated for the route so far
+     * @param servicePoint
+     * @param moveLimit the drone's maxMoves scaled by the safety factor
+     * @return
+     */
+    private boolean withinMoveEstimate(MedDispatchRec candidate, double distance, int estimatedMoves,
+                                       ServicePoint servicePoint, double moveLimit) {
+        double estMovesToTarget = distance / 0.00015;
+        double estReturnMoves = distanceService.euclideanDistance(candidate.getDelivery(), servicePoint.getLocation()) / 0.00015;
+        return !(estimatedMoves + estMovesToTarget + estReturnMoves > moveLimit);
+    }
+
     /**
      * converts calculated delivery path to GeoJSON
      * @param dispatches
      * @return
      */
     public String calcDeliveryPathAsGeoJson(List<MedDispatchRec> dispatches) {
-        CalcDeliveryPathResponse response = calcDeliveryPath(dispatches);
+        CalcDeliveryPathResponse response = plan(dispatches, planningProperties.limitsFor("calcDeliveryPathAsGeoJson"),
+                PlanTracer.DISABLED);
 
         List<List<Double>> coordinates = new ArrayList<>();
 
@@ -678,22 +1695,79 @@ public class PathfindingService {
 
 
     /**
-     * Node class used for A* search
-     * represents a position in the graph
+     * a route for one drone over some of the dispatches it could carry, with its legs, moves and cost
+     * feasible is false when the path breaks the drone's maxMoves or the route's maxCost
+     * legs is null when no path was searched, positions are only built for accepted plans, see {@link #materialise}
+     */
+    private record DronePlan(String droneId, List<MedDispatchRec> candidates, List<MedDispatchRec> route, List<LegPath> legs,
+                             int moves, double cost, boolean feasible) {}
+
+    /**
+     * an accepted plan scheduled on the sortie timeline, with when it leaves and gets back to the service point
+     */
+    private record Sortie(DronePlan plan, LocalDateTime takeOff, LocalDateTime landing) {}
+
+    /**
+     * search budgets for the legs of one drone's route, derived from the request's limits and the drone's maxMoves,
+     * and whether the legs are searched concurrently
+     */
+    private record LegLimits(int astarIterations, int greedySteps, double localStepFactor, int localStepSlack, boolean parallel) {
+
+        static LegLimits of(PlanningLimits limits, Drone drone, boolean parallel){
+            Integer maxMoves = drone.getCapability().getMaxMoves();
+            return new LegLimits(limits.astarIterationsFor(maxMoves), limits.greedyStepsFor(maxMoves),
+                    limits.localPlannerStepFactor(), limits.localPlannerStepSlack(), parallel);
+        }
+    }
+
+    /**
+     * end of a jump, the position reached and how many moves it took
+     */
+    private record JumpPoint(Position pos, int steps) {}
+
+    /**
+     * a position the local planner has reached, and whether it was following a boundary there
+     */
+    private record VisitKey(double lat, double lng, boolean followingWall) {}
+
+    /**
+     * bounding boxes of the restricted areas grown by a margin of two moves
+     * a position outside every box cannot reach a restricted area in a single move,
+     * so it is open airspace and moves from it need no polygon checks
      */
-    private static class Node {
-        Position pos; //the position of this node object with lat, lng
-        Node parent; //the previous node in the path
-        double g;  //distance from start to this node
-        double h;  //estimated distance from the node to the goal - uses euclidean distance
-        double f;  // g+h
+    private static class ObstacleBounds {
+        private static final double MARGIN = 2 * MOVE_DISTANCE;
+        //the bounds for the most recent restricted areas list, reused while the same list instance is passed in
+        private static final LatestCache<List<RestrictedArea>, ObstacleBounds> LATEST = new LatestCache<>();
+
+        private final double[][] boxes; //minLat, maxLat, minLng, maxLng for each area
 
-        Node(Position pos, Node parent, double g, double h){
-            this.pos = pos;
-            this.parent = parent;
-            this.g = g;
-            this.h = h;
-            this.f = g + h;
+        static ObstacleBounds of(List<RestrictedArea> restrictedAreas){
+            return LATEST.get(restrictedAreas, ObstacleBounds::new);
+        }
+
+        private ObstacleBounds(List<RestrictedArea> restrictedAreas){
+            boxes = new double[restrictedAreas.size()][];
+            for (int i = 0; i < restrictedAreas.size(); i++){
+                double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+                double minLng = Double.MAX_VALUE, maxLng = -Double.MAX_VALUE;
+                for (Position vertex : restrictedAreas.get(i).getVertices()){
+                    minLat = Math.min(minLat, vertex.getLat());
+                    maxLat = Math.max(maxLat, vertex.getLat());
+                    minLng = Math.min(minLng, vertex.getLng());
+                    maxLng = Math.max(maxLng, vertex.getLng());
+                }
+                boxes[i] = new double[]{minLat - MARGIN, maxLat + MARGIN, minLng - MARGIN, maxLng + MARGIN};
+            }
+        }
+
+        boolean isNear(Position p){
+            for (double[] box : boxes){
+                if (p.getLat() >= box[0] && p.getLat() <= box[1] && p.getLng() >= box[2] && p.getLng() <= box[3]){
+                    return true;
+                }
+            }
+            return false;
         }
     }
 
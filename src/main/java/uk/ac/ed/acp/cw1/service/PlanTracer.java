@@ -0,0 +1,94 @@
+package uk.ac.ed.acp.cw1.service;
+
+import uk.ac.ed.acp.cw1.dto.MedDispatchRec;
+import uk.ac.ed.acp.cw1.dto.PlanTrace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the {@link PlanTrace} of one calcDeliveryPath call, legs are planned on several threads so every
+ * method is safe to call concurrently
+ * the {@link #DISABLED} tracer ignores everything, so the planner can report unconditionally
+ */
+class PlanTracer {
+
+    static final PlanTracer DISABLED = new PlanTracer(false);
+
+    private final boolean enabled;
+    private final Map<String, Long> stageNanos = new LinkedHashMap<>();
+    private final List<PlanTrace.LegTrace> legs = Collections.synchronizedList(new ArrayList<>());
+    private final List<PlanTrace.RejectedRoute> rejectedRoutes = Collections.synchronizedList(new ArrayList<>());
+
+    private PlanTracer(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    static PlanTracer of(boolean enabled) {
+        return enabled ? new PlanTracer(true) : DISABLED;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * adds the time since startNanos to a stage, a stage that runs several times (once per date) is summed
+     * @param stage
+     * @param startNanos from System.nanoTime()
+     */
+    void stage(String stage, long startNanos) {
+        if (!enabled) {
+            return;
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        synchronized (stageNanos) {
+            stageNanos.merge(stage, elapsed, Long::sum);
+        }
+    }
+
+    /**
+     * @return a leg to fill in while it is planned, or null when tracing is off
+     */
+    PlanTrace.LegTrace startLeg(String droneId, int index) {
+        return enabled ? new PlanTrace.LegTrace(droneId, index, null, 0, 0, 0.0) : null;
+    }
+
+    void finishLeg(PlanTrace.LegTrace leg, int moves, long startNanos) {
+        if (leg == null) {
+            return;
+        }
+        leg.setMoves(moves);
+        leg.setMillis((System.nanoTime() - startNanos) / 1e6);
+        legs.add(leg);
+    }
+
+    void rejected(String droneId, List<MedDispatchRec> route, String reason, int moves, double cost) {
+        if (!enabled) {
+            return;
+        }
+        List<Integer> dispatchIds = route.stream().map(MedDispatchRec::getId).toList();
+        rejectedRoutes.add(new PlanTrace.RejectedRoute(droneId, dispatchIds, reason, moves, cost));
+    }
+
+    /**
+     * @return the trace, or null when tracing is off
+     */
+    PlanTrace toTrace() {
+        if (!enabled) {
+            return null;
+        }
+        Map<String, Double> stageMillis = new LinkedHashMap<>();
+        synchronized (stageNanos) {
+            stageNanos.forEach((stage, nanos) -> stageMillis.put(stage, nanos / 1e6));
+        }
+        synchronized (legs) {
+            long nodesExpanded = legs.stream().mapToLong(PlanTrace.LegTrace::getNodesExpanded).sum();
+            return new PlanTrace(stageMillis, legs.size(), nodesExpanded, new ArrayList<>(legs),
+                    new ArrayList<>(rejectedRoutes));
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package uk.ac.ed.acp.cw1.service;
+
+import uk.ac.ed.acp.cw1.dto.Position;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reusable scratch space for a single A* search, used by the {@link PathfindingService}
+ * holds the node table (open addressing keyed by position key) and the open set (binary heap)
+ * clearing only bumps a generation counter, so the arrays and node objects are reused between searches
+ * workspaces are borrowed from a shared pool rather than a ThreadLocal so virtual threads don't each keep one
+ */
+class SearchWorkspace {
+
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    //workspaces that grew beyond this are dropped instead of pooled so huge searches don't pin memory
+    private static final int MAX_POOLED_CAPACITY = 1 << 16;
+    private static final int MAX_POOLED_WORKSPACES = 2 * Runtime.getRuntime().availableProcessors();
+
+    private static final ConcurrentLinkedQueue<SearchWorkspace> POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    //node table, a slot is only in use when its stamp matches the current generation
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int[] stamps = new int[INITIAL_CAPACITY];
+    private Node[] nodes = new Node[INITIAL_CAPACITY];
+    private int size;
+    private int generation = 1;
+
+    //open set, entries are never removed when a node gets cheaper, stale entries are skipped when polled
+    private Node[] heap = new Node[INITIAL_CAPACITY];
+    private double[] heapF = new double[INITIAL_CAPACITY];
+    private int heapSize;
+
+    //nodes polled from the open set since the last clear
+    private int expanded;
+
+    /**
+     * borrows a cleared workspace from the pool, or creates one if the pool is empty
+     * @return a workspace ready for a new search
+     */
+    static SearchWorkspace acquire(){
+        SearchWorkspace workspace = POOL.poll();
+        if (workspace == null){
+            return new SearchWorkspace();
+        }
+        POOLED.decrementAndGet();
+        workspace.clear();
+        return workspace;
+    }
+
+    /**
+     * returns a workspace to the pool once the search (including path reconstruction) is finished
+     * @param workspace
+     */
+    static void release(SearchWorkspace workspace){
+        if (workspace.keys.length > MAX_POOLED_CAPACITY){
+            return;
+        }
+        if (POOLED.incrementAndGet() > MAX_POOLED_WORKSPACES){
+            POOLED.decrementAndGet();
+            return;
+        }
+        POOL.offer(workspace);
+    }
+
+    /**
+     * the key of the position, positions closer than the 1e-4 rounding share a key
+     * @param p
+     * @return
+     */
+    static long key(Position p){
+        long lat = Math.round(p.getLat() * 1e4);
+        long lng = Math.round(p.getLng() * 1e4);
+        return (lat << 32) ^ (lng & 0xffffffffL);
+    }
+
+    void clear(){
+        generation++;
+        if (generation == 0){
+            // the counter wrapped around, old stamps could look current again
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+        size = 0;
+        Arrays.fill(heap, 0, heapSize, null);
+        heapSize = 0;
+        expanded = 0;
+    }
+
+    /**
+     * @param key
+     * @return the node stored under this key in the current search, or null
+     */
+    Node get(long key){
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; stamps[slot] == generation; slot = (slot + 1) & mask){
+            if (keys[slot] == key){
+                return nodes[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * stores a new node under a key that is not in the table yet, reusing an old node object when possible
+     * @return the stored node
+     */
+    Node add(long key, Position pos, Node parent, double g, double h){
+        if ((size + 1) * 2 > keys.length){
+            grow();
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (stamps[slot] == generation){
+            slot = (slot + 1) & mask;
+        }
+        Node node = nodes[slot];
+        if (node == null){
+            node = new Node();
+            nodes[slot] = node;
+        }
+        node.reset(pos, parent, g, h);
+        keys[slot] = key;
+        stamps[slot] = generation;
+        size++;
+        return node;
+    }
+
+    /**
+     * adds a node to the open set with its current f, call again after lowering its cost
+     * @param node
+     */
+    void push(Node node){
+        if (heapSize == heap.length){
+            heap = Arrays.copyOf(heap, heapSize * 2);
+            heapF = Arrays.copyOf(heapF, heapSize * 2);
+        }
+        int i = heapSize++;
+        double f = node.f;
+        while (i > 0){
+            int parent = (i - 1) >>> 1;
+            if (heapF[parent] <= f){
+                break;
+            }
+            heap[i] = heap[parent];
+            heapF[i] = heapF[parent];
+            i = parent;
+        }
+        heap[i] = node;
+        heapF[i] = f;
+    }
+
+    /**
+     * @return the open node with the lowest f, or null once the open set is empty
+     */
+    Node poll(){
+        while (heapSize > 0){
+            Node top = heap[0];
+            double topF = heapF[0];
+            heapSize--;
+            Node last = heap[heapSize];
+            double lastF = heapF[heapSize];
+            heap[heapSize] = null;
+            if (heapSize > 0){
+                siftDown(last, lastF);
+            }
+            // skip entries for nodes that were closed or made cheaper after being pushed
+            if (!top.closed && topF == top.f){
+                expanded++;
+                return top;
+            }
+        }
+        return null;
+    }
+
+    int getExpanded(){
+        return expanded;
+    }
+
+    private void siftDown(Node node, double f){
+        int i = 0;
+        int half = heapSize >>> 1;
+        while (i < half){
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < heapSize && heapF[right] < heapF[child]){
+                child = right;
+            }
+            if (f <= heapF[child]){
+                break;
+            }
+            heap[i] = heap[child];
+            heapF[i] = heapF[child];
+            i = child;
+        }
+        heap[i] = node;
+        heapF[i] = f;
+    }
+
+    private void grow(){
+        long[] oldKeys = keys;
+        int[] oldStamps = stamps;
+        Node[] oldNodes = nodes;
+        int capacity = oldKeys.length * 2;
+        keys = new long[capacity];
+        stamps = new int[capacity];
+        nodes = new Node[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++){
+            if (oldStamps[i] != generation){
+                continue;
+            }
+            int slot = hash(oldKeys[i]) & mask;
+            while (stamps[slot] == generation){
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            stamps[slot] = generation;
+            nodes[slot] = oldNodes[i];
+        }
+    }
+
+    private static int hash(long key){
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Node used for A* search
+     * represents a position in the graph, node objects are reused by the workspace between searches
+     */
+    static class Node {
+        Position pos; //the position of this node object with lat, lng
+        Node parent; //the previous node in the path
+        double g;  //distance from start to this node
+        double h;  //estimated distance from the node to the goal - uses euclidean distance
+        double f;  // g+h
+        int direction; //index of the compass direction used to reach this node, -1 for the start
+        int steps; //number of moves from the parent, more than one when the node is a jump point
+        boolean closed; //already expanded
+
+        void reset(Position pos, Node parent, double g, double h){
+            this.pos = pos;
+            this.parent = parent;
+            this.g = g;
+            this.h = h;
+            this.f = g + h;
+            this.direction = -1;
+            this.steps = 1;
+            this.closed = false;
+        }
+    }
+}
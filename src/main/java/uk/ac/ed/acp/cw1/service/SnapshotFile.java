@@ -0,0 +1,68 @@
+package uk.ac.ed.acp.cw1.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzipped JSON file holding the last reference data fetched by the {@link ExternalAPIService}
+ * writes go to a temporary file in the same directory that is then moved over the old one,
+ * so a crash mid-write never leaves a truncated snapshot behind
+ */
+class SnapshotFile {
+
+    private final Path file;
+    private final ObjectMapper mapper;
+
+    SnapshotFile(Path file) {
+        this.file = file;
+        this.mapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    ObjectMapper getMapper() {
+        return mapper;
+    }
+
+    /**
+     * @return the stored tree, or null if there is no snapshot file yet
+     * @throws IOException if the file exists but can't be read
+     */
+    JsonNode read() throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            return mapper.readTree(in);
+        }
+    }
+
+    /**
+     * replaces the snapshot file with the given value
+     * @param value serialised with Jackson
+     * @throws IOException if the file can't be written, the old snapshot is left in place
+     */
+    synchronized void write(Object value) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+                mapper.writeValue(out, value);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package uk.ac.ed.acp.cw1.load;
+
+import java.util.Arrays;
+
+/**
+ * Latencies and outcomes of the requests sent to one endpoint during a load run
+ * latencies are kept in full so the percentiles are exact, a run is at most a few hundred thousand requests
+ */
+public class EndpointStats {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private int errors;
+    private int rejected;
+
+    /**
+     * @param latencyNanos time from when the request was due to be sent until its response arrived
+     * @param status HTTP status, or -1 if the request failed without a response
+     */
+    public synchronized void record(long latencyNanos, int status) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        if (status == 503) {
+            rejected++;
+        } else if (status < 200 || status >= 300) {
+            errors++;
+        }
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * @return responses that were not 2xx, except 503s
+     */
+    public synchronized int getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return 503 responses, requests turned away by the bulkhead
+     */
+    public synchronized int getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the latency at the percentile in milliseconds (nearest rank), 0 when nothing was recorded
+     */
+    public synchronized double percentileMillis(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100 * count);
+        return sorted[Math.max(0, Math.min(count, rank) - 1)] / 1e6;
+    }
+}
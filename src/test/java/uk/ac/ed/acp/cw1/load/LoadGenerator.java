@@ -0,0 +1,138 @@
+package uk.ac.ed.acp.cw1.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a recorded request log against a running service, cycling through the log until the run ends
+ * open loop runs send requests on a fixed schedule whatever the service's response times, so latency is measured
+ * from when each request was due rather than when it was sent and a slow service cannot hide its queueing delay,
+ * closed loop runs keep a fixed number of requests in flight and send the next as soon as one completes
+ */
+public class LoadGenerator {
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final URI baseUri;
+    private final List<RecordedRequest> requests;
+    private final int concurrency;
+    private final Duration requestTimeout;
+
+    /**
+     * @param baseUri the service, e.g. http://localhost:8080
+     * @param requests the log to replay, must not be empty
+     * @param concurrency most requests in flight at once, open loop requests due while at the limit are dropped
+     * @param requestTimeout how long a request may take before it counts as failed
+     */
+    public LoadGenerator(URI baseUri, List<RecordedRequest> requests, int concurrency, Duration requestTimeout) {
+        if (requests.isEmpty()) {
+            throw new IllegalArgumentException("request log is empty");
+        }
+        this.baseUri = baseUri;
+        this.requests = requests;
+        this.concurrency = concurrency;
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * sends requests at a constant arrival rate for the given duration, then waits for the ones in flight
+     * @param ratePerSecond requests started per second
+     * @param duration how long to keep sending
+     * @return the results per endpoint
+     */
+    public LoadReport runOpenLoop(double ratePerSecond, Duration duration) throws InterruptedException {
+        Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+        Semaphore slots = new Semaphore(concurrency);
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        int dropped = 0;
+
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long due = start + i * interval;
+                if (due >= end) {
+                    break;
+                }
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (!slots.tryAcquire()) {
+                    dropped++;
+                    continue;
+                }
+                RecordedRequest request = requests.get((int) (i % requests.size()));
+                executor.execute(() -> {
+                    try {
+                        send(request, due, stats);
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+        }
+        return new LoadReport(stats, System.nanoTime() - start, dropped);
+    }
+
+    /**
+     * keeps concurrency requests in flight for the given duration
+     * @param duration how long to keep sending
+     * @return the results per endpoint
+     */
+    public LoadReport runClosedLoop(Duration duration) {
+        Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+        AtomicLong next = new AtomicLong();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int worker = 0; worker < concurrency; worker++) {
+                executor.execute(() -> {
+                    while (System.nanoTime() < end) {
+                        RecordedRequest request = requests.get((int) (next.getAndIncrement() % requests.size()));
+                        send(request, System.nanoTime(), stats);
+                    }
+                });
+            }
+        }
+        return new LoadReport(stats, System.nanoTime() - start, 0);
+    }
+
+    private void send(RecordedRequest request, long due, Map<String, EndpointStats> stats) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(baseUri.resolve(request.path()))
+                .timeout(requestTimeout);
+        if (request.body() == null) {
+            builder.method(request.method(), HttpRequest.BodyPublishers.noBody());
+        } else {
+            builder.header("Content-Type", "application/json")
+                    .method(request.method(), HttpRequest.BodyPublishers.ofString(request.body()));
+        }
+
+        int status;
+        try {
+            status = client.send(builder.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            status = -1;
+        }
+        stats.computeIfAbsent(request.endpoint(), e -> new EndpointStats())
+                .record(System.nanoTime() - due, status);
+    }
+}
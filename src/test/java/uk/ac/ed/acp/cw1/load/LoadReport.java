@@ -0,0 +1,34 @@
+package uk.ac.ed.acp.cw1.load;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Results of one load run
+ * @param endpoints stats per endpoint
+ * @param elapsedNanos length of the run including the wait for the last responses
+ * @param dropped open loop requests that were due while the concurrency limit was reached and never sent
+ */
+public record LoadReport(Map<String, EndpointStats> endpoints, long elapsedNanos, int dropped) {
+
+    public int totalCount() {
+        return endpoints.values().stream().mapToInt(EndpointStats::getCount).sum();
+    }
+
+    /**
+     * @return a table with one row per endpoint and a total line
+     */
+    public String format() {
+        double seconds = elapsedNanos / 1e9;
+        StringBuilder out = new StringBuilder(String.format("%-26s %8s %8s %8s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "errors", "503s", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        new TreeMap<>(endpoints).forEach((endpoint, stats) -> out.append(String.format(
+                "%-26s %8d %8d %8d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                endpoint, stats.getCount(), stats.getErrors(), stats.getRejected(), stats.getCount() / seconds,
+                stats.percentileMillis(50), stats.percentileMillis(90), stats.percentileMillis(99),
+                stats.percentileMillis(100))));
+        out.append(String.format("total %d requests in %.1fs (%.1f req/s), %d dropped at the concurrency limit%n",
+                totalCount(), seconds, totalCount() / seconds, dropped));
+        return out.toString();
+    }
+}
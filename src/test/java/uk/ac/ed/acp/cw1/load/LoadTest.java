@@ -0,0 +1,60 @@
+package uk.ac.ed.acp.cw1.load;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Replays a request log against the service on a random port, with the ILP REST service replaced by the
+ * recorded responses in src/test/resources/loadtest/upstream so nothing outside the JVM is called
+ * tagged load so the normal build skips it, run it with mvn test -Pload-test, the settings below can be
+ * overridden with -Dloadtest.rate=200 etc. and the report is printed and written to target/loadtest-report.txt
+ * generated scenarios are replayed with -Dloadtest.upstream and -Dloadtest.log, see {@link ScalingStudy}
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "ilp.replay.dir=${loadtest.upstream:src/test/resources/loadtest/upstream}",
+        "ilp.record.dir=",
+        "ilp.snapshot.path="
+})
+public class LoadTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    public void replayRequestLog() throws Exception {
+        List<RecordedRequest> requests = RecordedRequest.readLog(
+                Path.of(System.getProperty("loadtest.log", "src/test/resources/loadtest/requests.jsonl")));
+        String mode = System.getProperty("loadtest.mode", "open");
+        double rate = Double.parseDouble(System.getProperty("loadtest.rate", "50"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(System.getProperty("loadtest.duration", "30")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(System.getProperty("loadtest.warmup", "5")));
+        int concurrency = Integer.parseInt(System.getProperty("loadtest.concurrency", "64"));
+
+        LoadGenerator generator = new LoadGenerator(URI.create("http://localhost:" + port), requests,
+                concurrency, Duration.ofSeconds(30));
+        // let the JIT and the reference data caches settle before measuring
+        generator.runClosedLoop(warmup);
+        LoadReport report = mode.equals("closed")
+                ? generator.runClosedLoop(duration)
+                : generator.runOpenLoop(rate, duration);
+
+        String header = String.format("load test: %s loop, %d requests in log, rate %.1f/s, concurrency %d, %ds%n",
+                mode, requests.size(), rate, concurrency, duration.toSeconds());
+        System.out.print(header + report.format());
+        Files.createDirectories(Path.of("target"));
+        Files.writeString(Path.of("target", "loadtest-report.txt"), header + report.format());
+
+        assertTrue(report.totalCount() > 0, "no requests completed");
+    }
+}
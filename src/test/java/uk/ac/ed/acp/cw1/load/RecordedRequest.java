@@ -0,0 +1,55 @@
+package uk.ac.ed.acp.cw1.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One request of a recorded request log, a log is a JSON lines file with one
+ * {"method": "POST", "path": "/api/v1/...", "body": {...}} object per line, body is left out for GETs
+ * @param method HTTP method
+ * @param path request path including the /api/v1 prefix
+ * @param body JSON body, or null
+ * @param endpoint the path with path variables dropped, used to group the results
+ */
+public record RecordedRequest(String method, String path, String body, String endpoint) {
+
+    /**
+     * reads a request log, blank lines and lines starting with # are skipped
+     * @param file the log
+     * @return the requests in file order
+     */
+    public static List<RecordedRequest> readLog(Path file) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        List<RecordedRequest> requests = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            JsonNode node = mapper.readTree(line);
+            String path = node.get("path").asText();
+            JsonNode body = node.get("body");
+            requests.add(new RecordedRequest(
+                    node.path("method").asText("GET"),
+                    path,
+                    body == null || body.isNull() ? null : mapper.writeValueAsString(body),
+                    endpointOf(path)));
+        }
+        return requests;
+    }
+
+    /**
+     * @param path request path
+     * @return the first segment after /api/v1, e.g. /api/v1/droneDetails/4 becomes droneDetails
+     */
+    static String endpointOf(String path) {
+        String trimmed = path.replaceFirst("^/api/v1/?", "");
+        int slash = trimmed.indexOf('/');
+        return slash < 0 ? trimmed : trimmed.substring(0, slash);
+    }
+}
@@ -0,0 +1,103 @@
+package uk.ac.ed.acp.cw1.load;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.RestTemplate;
+import uk.ac.ed.acp.cw1.configuration.ReplayClientHttpRequestFactory;
+import uk.ac.ed.acp.cw1.dto.CalcDeliveryPathResponse;
+import uk.ac.ed.acp.cw1.dto.MedDispatchRec;
+import uk.ac.ed.acp.cw1.service.DistanceService;
+import uk.ac.ed.acp.cw1.service.DroneService;
+import uk.ac.ed.acp.cw1.service.ExternalAPIService;
+import uk.ac.ed.acp.cw1.service.PathfindingService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Times calcDeliveryPath and queryAvailableDrones on generated scenarios, growing one axis of the
+ * {@link ScenarioSettings} at a time from the defaults, the services read the scenario through the same
+ * replayed upstream fixtures the {@link LoadTest} uses
+ * tagged load so the normal build skips it, run it with mvn test -Pload-test -Dtest=ScalingStudy,
+ * the table is printed and written to target/scaling-report.txt, the default scenario's fixtures and
+ * request log are left in target/scenarios/default for use with the LoadTest
+ */
+@Tag("load")
+public class ScalingStudy {
+
+    private final ScenarioGenerator generator = new ScenarioGenerator();
+    private final int repeats = Integer.parseInt(System.getProperty("scaling.repeats", "3"));
+    private final StringBuilder report = new StringBuilder(String.format("%-16s %6s %10s %10s %10s %8s%n",
+            "axis", "value", "calc ms", "query ms", "delivered", "moves"));
+
+    @TempDir
+    private Path scenarios;
+
+    @Test
+    public void scaleEachAxis() throws Exception {
+        ScenarioSettings defaults = ScenarioSettings.defaults();
+        Path output = Path.of("target", "scenarios", "default");
+        generator.generate(defaults).writeFixtures(output.resolve("upstream"));
+        generator.generate(defaults).writeRequestLog(output.resolve("requests.jsonl"));
+
+        axis("drones", defaults::withDrones, 5, 10, 20, 40, 80);
+        axis("servicePoints", defaults::withServicePoints, 1, 2, 4, 8);
+        axis("restrictedAreas", defaults::withRestrictedAreas, 0, 4, 8, 16, 32);
+        axis("polygonVertices", defaults::withPolygonVertices, 4, 8, 16, 32);
+        axis("dispatches", defaults::withDispatches, 10, 20, 40, 80);
+
+        System.out.print(report);
+        Files.writeString(Path.of("target", "scaling-report.txt"), report);
+        assertFalse(report.isEmpty());
+    }
+
+    private void axis(String name, IntFunction<ScenarioSettings> settings, int... values) throws Exception {
+        for (int value : values) {
+            Scenario scenario = generator.generate(settings.apply(value));
+            Path fixtures = scenarios.resolve(name + "-" + value);
+            scenario.writeFixtures(fixtures);
+
+            ExternalAPIService externalAPIService = new ExternalAPIService(
+                    new RestTemplate(new ReplayClientHttpRequestFactory(fixtures)), "http://scenario/");
+            DistanceService distanceService = new DistanceService();
+            DroneService droneService = new DroneService(externalAPIService, distanceService);
+            PathfindingService pathfindingService = new PathfindingService(distanceService, externalAPIService, droneService);
+            List<List<MedDispatchRec>> days = List.copyOf(scenario.dispatchesByDate().values());
+
+            // first run warms up and is not counted
+            double[] calc = new double[repeats];
+            double[] query = new double[repeats];
+            CalcDeliveryPathResponse response = null;
+            for (int run = -1; run < repeats; run++) {
+                long start = System.nanoTime();
+                response = pathfindingService.calcDeliveryPath(scenario.dispatches());
+                long planned = System.nanoTime();
+                days.forEach(droneService::queryAvailableDrones);
+                long queried = System.nanoTime();
+                if (run >= 0) {
+                    calc[run] = (planned - start) / 1e6;
+                    query[run] = (queried - planned) / 1e6;
+                }
+            }
+
+            int delivered = response.getDronePaths().stream()
+                    .mapToInt(path -> (int) path.getDeliveries().stream()
+                            .filter(delivery -> delivery.getDeliveryId() != null).count())
+                    .sum();
+            report.append(String.format("%-16s %6d %10.1f %10.2f %10s %8d%n", name, value, median(calc),
+                    median(query), delivered + "/" + scenario.dispatches().size(), response.getTotalMoves()));
+        }
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,83 @@
+package uk.ac.ed.acp.cw1.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import uk.ac.ed.acp.cw1.dto.Drone;
+import uk.ac.ed.acp.cw1.dto.DroneForServicePointResponse;
+import uk.ac.ed.acp.cw1.dto.MedDispatchRec;
+import uk.ac.ed.acp.cw1.dto.RestrictedArea;
+import uk.ac.ed.acp.cw1.dto.ServicePoint;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A generated set of upstream data and the dispatches to plan against it, see {@link ScenarioGenerator}
+ * @param drones the /drones dataset
+ * @param servicePoints the /service-points dataset
+ * @param assignments the /drones-for-service-points dataset
+ * @param restrictedAreas the /restricted-areas dataset
+ * @param dispatches dispatches over a week, ids start at 1
+ */
+public record Scenario(List<Drone> drones,
+                       List<ServicePoint> servicePoints,
+                       List<DroneForServicePointResponse> assignments,
+                       List<RestrictedArea> restrictedAreas,
+                       List<MedDispatchRec> dispatches) {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    /**
+     * @return the dispatches grouped by date, in date order
+     */
+    public Map<LocalDate, List<MedDispatchRec>> dispatchesByDate() {
+        Map<LocalDate, List<MedDispatchRec>> byDate = new TreeMap<>();
+        for (MedDispatchRec dispatch : dispatches) {
+            byDate.computeIfAbsent(dispatch.getDate(), d -> new ArrayList<>()).add(dispatch);
+        }
+        return byDate;
+    }
+
+    /**
+     * writes the datasets as recorded upstream responses, the directory can be used as ilp.replay.dir
+     * @param directory created if missing
+     */
+    public void writeFixtures(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        MAPPER.writeValue(directory.resolve("drones.json").toFile(), drones);
+        MAPPER.writeValue(directory.resolve("service-points.json").toFile(), servicePoints);
+        MAPPER.writeValue(directory.resolve("drones-for-service-points.json").toFile(), assignments);
+        MAPPER.writeValue(directory.resolve("restricted-areas.json").toFile(), restrictedAreas);
+    }
+
+    /**
+     * writes a request log for the {@link LoadTest}, one calcDeliveryPath and one queryAvailableDrones
+     * request per day with that day's dispatches
+     * @param file the log, overwritten
+     */
+    public void writeRequestLog(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        List<String> lines = new ArrayList<>();
+        for (List<MedDispatchRec> day : dispatchesByDate().values()) {
+            for (String endpoint : List.of("calcDeliveryPath", "queryAvailableDrones")) {
+                ObjectNode line = MAPPER.createObjectNode();
+                line.put("method", "POST");
+                line.put("path", "/api/v1/" + endpoint);
+                line.set("body", MAPPER.valueToTree(day));
+                lines.add(MAPPER.writeValueAsString(line));
+            }
+        }
+        Files.write(file, lines);
+    }
+}
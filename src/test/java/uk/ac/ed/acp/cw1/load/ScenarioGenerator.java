@@ -0,0 +1,206 @@
+package uk.ac.ed.acp.cw1.load;
+
+import uk.ac.ed.acp.cw1.dto.Availability;
+import uk.ac.ed.acp.cw1.dto.Drone;
+import uk.ac.ed.acp.cw1.dto.DroneAvailability;
+import uk.ac.ed.acp.cw1.dto.DroneForServicePointResponse;
+import uk.ac.ed.acp.cw1.dto.MedDispatchRec;
+import uk.ac.ed.acp.cw1.dto.Position;
+import uk.ac.ed.acp.cw1.dto.Region;
+import uk.ac.ed.acp.cw1.dto.RestrictedArea;
+import uk.ac.ed.acp.cw1.dto.ServicePoint;
+import uk.ac.ed.acp.cw1.service.DistanceService;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Seeded generator of scenarios around central Edinburgh, shaped like the live ILP data
+ * every part of a scenario is drawn from its own random stream, so changing one axis of the
+ * {@link ScenarioSettings} leaves the others alone: more drones adds drones without changing the existing ones,
+ * more dispatches appends dispatches, and so on, the exception is that polygons are kept clear of the
+ * service points and dispatches, so changing the service points or polygons can move later polygons or dispatches
+ */
+public class ScenarioGenerator {
+
+    // the area everything is placed in, roughly the Meadows to Leith Walk
+    private static final double MIN_LAT = 55.935;
+    private static final double MAX_LAT = 55.960;
+    private static final double MIN_LNG = -3.205;
+    private static final double MAX_LNG = -3.170;
+
+    // a Monday, dispatches fall on this day and the six after it
+    public static final LocalDate FIRST_DAY = LocalDate.of(2025, 12, 22);
+
+    private static final long DRONES = 1, MODELS = 2, SERVICE_POINTS = 3, AREAS = 4, DISPATCHES = 5;
+
+    private final DistanceService distanceService = new DistanceService();
+
+    /**
+     * @param settings size of the scenario
+     * @return the scenario, equal settings give an equal scenario
+     */
+    public Scenario generate(ScenarioSettings settings) {
+        List<ServicePoint> servicePoints = servicePoints(settings);
+        List<Drone.Capability> models = models(settings);
+        List<Drone> drones = new ArrayList<>();
+        List<DroneForServicePointResponse> assignments = assignDrones(settings, models, servicePoints, drones);
+        List<RestrictedArea> restrictedAreas = restrictedAreas(settings, servicePoints);
+        List<MedDispatchRec> dispatches = dispatches(settings, restrictedAreas);
+        return new Scenario(drones, servicePoints, assignments, restrictedAreas, dispatches);
+    }
+
+    private Random random(ScenarioSettings settings, long part) {
+        return new Random(settings.seed() * 31 + part);
+    }
+
+    private List<ServicePoint> servicePoints(ScenarioSettings settings) {
+        Random random = random(settings, SERVICE_POINTS);
+        List<ServicePoint> servicePoints = new ArrayList<>();
+        for (int i = 1; i <= settings.servicePoints(); i++) {
+            servicePoints.add(new ServicePoint("Service Point " + i, i, randomPosition(random)));
+        }
+        return servicePoints;
+    }
+
+    /**
+     * drone models, from small fast couriers to heavy lifters, about one in three can cool and one in two can heat
+     */
+    private List<Drone.Capability> models(ScenarioSettings settings) {
+        Random random = random(settings, MODELS);
+        List<Drone.Capability> models = new ArrayList<>();
+        for (int i = 0; i < settings.droneModels(); i++) {
+            double capacity = 4 + random.nextInt(5) * 4;
+            models.add(new Drone.Capability(
+                    random.nextInt(3) == 0,
+                    random.nextBoolean(),
+                    capacity,
+                    1000 + random.nextInt(7) * 500,
+                    Math.round(10 + capacity * 2 + random.nextDouble() * 20) / 1000.0,
+                    Math.round(10 + random.nextDouble() * 90) / 10.0,
+                    Math.round(10 + random.nextDouble() * 90) / 10.0));
+        }
+        return models;
+    }
+
+    /**
+     * creates the drones and gives each a service point and weekly availability,
+     * most drones work a shift on most days, some are available around the clock
+     */
+    private List<DroneForServicePointResponse> assignDrones(ScenarioSettings settings, List<Drone.Capability> models,
+                                                            List<ServicePoint> servicePoints, List<Drone> drones) {
+        Random random = random(settings, DRONES);
+        Map<Integer, List<DroneAvailability>> byServicePoint = new TreeMap<>();
+        for (int i = 1; i <= settings.drones(); i++) {
+            Drone.Capability model = models.get(random.nextInt(models.size()));
+            String id = String.valueOf(i);
+            drones.add(new Drone("Drone " + i, id, copy(model)));
+
+            List<Availability> availability = new ArrayList<>();
+            boolean roundTheClock = random.nextInt(5) == 0;
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if (roundTheClock) {
+                    availability.add(new Availability(day, LocalTime.MIN, LocalTime.of(23, 59, 59)));
+                } else if (random.nextInt(10) < 7) {
+                    int start = random.nextInt(13);
+                    int length = 6 + random.nextInt(7);
+                    LocalTime until = start + length >= 24 ? LocalTime.of(23, 59, 59) : LocalTime.of(start + length, 0);
+                    availability.add(new Availability(day, LocalTime.of(start, 0), until));
+                }
+            }
+            int servicePointId = servicePoints.get(random.nextInt(servicePoints.size())).getId();
+            byServicePoint.computeIfAbsent(servicePointId, s -> new ArrayList<>())
+                    .add(new DroneAvailability(id, availability));
+        }
+
+        List<DroneForServicePointResponse> assignments = new ArrayList<>();
+        byServicePoint.forEach((servicePointId, assigned) ->
+                assignments.add(new DroneForServicePointResponse(servicePointId, assigned)));
+        return assignments;
+    }
+
+    /**
+     * star shaped polygons with jittered radii, so they are concave once they have more than a few corners,
+     * about 100 to 250m across, none covers a service point
+     */
+    private List<RestrictedArea> restrictedAreas(ScenarioSettings settings, List<ServicePoint> servicePoints) {
+        Random random = random(settings, AREAS);
+        List<RestrictedArea> areas = new ArrayList<>();
+        while (areas.size() < settings.restrictedAreas()) {
+            Position centre = randomPosition(random);
+            double radius = 0.0008 + random.nextDouble() * 0.0012;
+            int corners = settings.polygonVertices();
+
+            double[] angles = new double[corners];
+            for (int c = 0; c < corners; c++) {
+                angles[c] = (c + random.nextDouble() * 0.8) * 2 * Math.PI / corners;
+            }
+            Arrays.sort(angles);
+            List<Position> vertices = new ArrayList<>();
+            for (double angle : angles) {
+                double r = radius * (0.4 + random.nextDouble() * 0.6);
+                vertices.add(new Position(centre.getLat() + r * Math.sin(angle), centre.getLng() + r * Math.cos(angle)));
+            }
+            vertices.add(vertices.get(0));
+
+            Region region = new Region("area", vertices);
+            boolean coversServicePoint = servicePoints.stream()
+                    .anyMatch(sp -> distanceService.isInRegion(sp.getLocation(), region));
+            if (!coversServicePoint) {
+                int id = areas.size() + 1;
+                areas.add(new RestrictedArea("Restricted Area " + id, id, vertices));
+            }
+        }
+        return areas;
+    }
+
+    /**
+     * dispatches spread over the week during the day, mostly small parcels,
+     * a few need cooling or heating and about a third have a cost limit, none is inside a restricted area
+     */
+    private List<MedDispatchRec> dispatches(ScenarioSettings settings, List<RestrictedArea> restrictedAreas) {
+        Random random = random(settings, DISPATCHES);
+        List<Region> regions = restrictedAreas.stream()
+                .map(area -> new Region(area.getName(), area.getVertices()))
+                .toList();
+        List<MedDispatchRec> dispatches = new ArrayList<>();
+        while (dispatches.size() < settings.dispatches()) {
+            LocalDate date = FIRST_DAY.plusDays(random.nextInt(7));
+            LocalTime time = LocalTime.of(7 + random.nextInt(13), random.nextInt(4) * 15);
+            int temperature = random.nextInt(10);
+            MedDispatchRec.Requirements requirements = new MedDispatchRec.Requirements(
+                    Math.round(5 + random.nextDouble() * 75) / 10.0,
+                    temperature == 0,
+                    temperature == 1,
+                    random.nextInt(3) == 0 ? (double) (10 + random.nextInt(6) * 10) : null);
+            Position delivery = randomPosition(random);
+            if (regions.stream().anyMatch(region -> distanceService.isInRegion(delivery, region))) {
+                continue;
+            }
+            dispatches.add(new MedDispatchRec(dispatches.size() + 1, date, time, requirements, delivery));
+        }
+        return dispatches;
+    }
+
+    private static Position randomPosition(Random random) {
+        return new Position(round(MIN_LAT + random.nextDouble() * (MAX_LAT - MIN_LAT)),
+                round(MIN_LNG + random.nextDouble() * (MAX_LNG - MIN_LNG)));
+    }
+
+    private static Drone.Capability copy(Drone.Capability model) {
+        return new Drone.Capability(model.isCooling(), model.isHeating(), model.getCapacity(), model.getMaxMoves(),
+                model.getCostPerMove(), model.getCostInitial(), model.getCostFinal());
+    }
+
+    //keeps the fixtures readable, six decimal places of a degree is about 10cm
+    private static double round(double value) {
+        return Math.round(value * 1e6) / 1e6;
+    }
+}
@@ -0,0 +1,57 @@
+package uk.ac.ed.acp.cw1.load;
+
+/**
+ * Size of a generated scenario along each axis a scaling study varies
+ * @param seed seed of the generator, equal settings always give the same scenario
+ * @param drones number of drones
+ * @param droneModels number of distinct capabilities the drones are drawn from
+ * @param servicePoints number of service points
+ * @param restrictedAreas number of restricted polygons
+ * @param polygonVertices corners of each polygon, more corners give more concave outlines
+ * @param dispatches number of dispatches, spread over a week
+ */
+public record ScenarioSettings(long seed, int drones, int droneModels, int servicePoints,
+                               int restrictedAreas, int polygonVertices, int dispatches) {
+
+    public ScenarioSettings {
+        if (drones < 0 || droneModels < 1 || servicePoints < 1 || restrictedAreas < 0
+                || polygonVertices < 3 || dispatches < 0) {
+            throw new IllegalArgumentException("invalid scenario settings " + this);
+        }
+    }
+
+    /**
+     * @return a scenario about the size of the live ILP data
+     */
+    public static ScenarioSettings defaults() {
+        return new ScenarioSettings(42, 10, 5, 2, 4, 6, 20);
+    }
+
+    public ScenarioSettings withSeed(long seed) {
+        return new ScenarioSettings(seed, drones, droneModels, servicePoints, restrictedAreas, polygonVertices, dispatches);
+    }
+
+    public ScenarioSettings withDrones(int drones) {
+        return new ScenarioSettings(seed, drones, droneModels, servicePoints, restrictedAreas, polygonVertices, dispatches);
+    }
+
+    public ScenarioSettings withDroneModels(int droneModels) {
+        return new ScenarioSettings(seed, drones, droneModels, servicePoints, restrictedAreas, polygonVertices, dispatches);
+    }
+
+    public ScenarioSettings withServicePoints(int servicePoints) {
+        return new ScenarioSettings(seed, drones, droneModels, servicePoints, restrictedAreas, polygonVertices, dispatches);
+    }
+
+    public ScenarioSettings withRestrictedAreas(int restrictedAreas) {
+        return new ScenarioSettings(seed, drones, droneModels, servicePoints, restrictedAreas, polygonVertices, dispatches);
+    }
+
+    public ScenarioSettings withPolygonVertices(int polygonVertices) {
+        return new ScenarioSettings(seed, drones, droneModels, servicePoints, restrictedAreas, polygonVertices, dispatches);
+    }
+
+    public ScenarioSettings withDispatches(int dispatches) {
+        return new ScenarioSettings(seed, drones, droneModels, servicePoints, restrictedAreas, polygonVertices, dispatches);
+    }
+}
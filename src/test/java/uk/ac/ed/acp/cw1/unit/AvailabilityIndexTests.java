@@ -0,0 +1,150 @@
+package uk.ac.ed.acp.cw1.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw1.dto.Availability;
+import uk.ac.ed.acp.cw1.dto.DroneAvailability;
+import uk.ac.ed.acp.cw1.dto.DroneForServicePointResponse;
+import uk.ac.ed.acp.cw1.service.AvailabilityIndex;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AvailabilityIndexTests {
+
+    private List<DroneForServicePointResponse> assignments;
+    private AvailabilityIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        assignments = List.of(
+                new DroneForServicePointResponse(1, List.of(
+                        new DroneAvailability("1", List.of(
+                                new Availability(DayOfWeek.TUESDAY, LocalTime.of(9, 0), LocalTime.of(12, 0)),
+                                new Availability(DayOfWeek.TUESDAY, LocalTime.of(14, 0), LocalTime.of(18, 0)))),
+                        new DroneAvailability("2", List.of(
+                                new Availability(DayOfWeek.TUESDAY, LocalTime.of(12, 0), LocalTime.of(15, 0)))))),
+                new DroneForServicePointResponse(2, List.of(
+                        new DroneAvailability("3", List.of(
+                                new Availability(DayOfWeek.WEDNESDAY, LocalTime.of(0, 0), LocalTime.of(23, 59)))),
+                        // listed again under another service point, the first listing is kept
+                        new DroneAvailability("1", List.of(
+                                new Availability(DayOfWeek.MONDAY, LocalTime.of(0, 0), LocalTime.of(23, 59)))))));
+        index = AvailabilityIndex.of(assignments);
+    }
+
+    private BitSet bits(String... droneIds) {
+        BitSet bits = new BitSet();
+        for (String droneId : droneIds) {
+            bits.set(index.indexOf(droneId));
+        }
+        return bits;
+    }
+
+    @Test
+    public void testAvailableAt_insideWindows_returnsDrones() {
+        assertEquals(bits("1", "2"), index.availableAt(DayOfWeek.TUESDAY, LocalTime.of(14, 30)));
+        assertEquals(bits("1"), index.availableAt(DayOfWeek.TUESDAY, LocalTime.of(10, 0)));
+    }
+
+    @Test
+    public void testAvailableAt_windowBoundsInclusive() {
+        assertEquals(bits("1", "2"), index.availableAt(DayOfWeek.TUESDAY, LocalTime.of(12, 0)));
+        assertEquals(bits("2"), index.availableAt(DayOfWeek.TUESDAY, LocalTime.of(12, 0, 1)));
+        assertEquals(bits("1"), index.availableAt(DayOfWeek.TUESDAY, LocalTime.of(18, 0)));
+        assertTrue(index.availableAt(DayOfWeek.TUESDAY, LocalTime.of(18, 0, 1)).isEmpty());
+        assertTrue(index.availableAt(DayOfWeek.TUESDAY, LocalTime.of(8, 59)).isEmpty());
+    }
+
+    @Test
+    public void testAvailableAt_dayWithoutSlots_returnsEmpty() {
+        assertTrue(index.availableAt(DayOfWeek.SUNDAY, LocalTime.of(12, 0)).isEmpty());
+    }
+
+    @Test
+    public void testAvailableAt_duplicateListing_keepsFirst() {
+        assertTrue(index.availableAt(DayOfWeek.MONDAY, LocalTime.of(12, 0)).isEmpty());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void testAvailableAt_returnedBitsetCanBeModified() {
+        index.availableAt(DayOfWeek.TUESDAY, LocalTime.of(14, 30)).clear();
+
+        assertEquals(bits("1", "2"), index.availableAt(DayOfWeek.TUESDAY, LocalTime.of(14, 30)));
+    }
+
+    @Test
+    public void testAvailableFromBy_slotStartedByTime_returnsDrones() {
+        assertEquals(bits("1"), index.availableFromBy(DayOfWeek.TUESDAY, LocalTime.of(11, 0)));
+        assertEquals(bits("1", "2"), index.availableFromBy(DayOfWeek.TUESDAY, LocalTime.of(12, 0)));
+        assertTrue(index.availableFromBy(DayOfWeek.TUESDAY, LocalTime.of(8, 0)).isEmpty());
+    }
+
+    @Test
+    public void testAvailableFromBy_nullTime_anySlotOnDay() {
+        assertEquals(bits("1", "2"), index.availableFromBy(DayOfWeek.TUESDAY, null));
+        assertEquals(bits("3"), index.availableFromBy(DayOfWeek.WEDNESDAY, null));
+    }
+
+    @Test
+    public void testIsAvailable_unknownDrone_returnsFalse() {
+        assertEquals(-1, index.indexOf("99"));
+        assertFalse(index.isAvailable("99", DayOfWeek.TUESDAY, LocalTime.of(10, 0)));
+        assertTrue(index.isAvailable("3", DayOfWeek.WEDNESDAY, LocalTime.of(10, 0)));
+    }
+
+    @Test
+    public void testSlotsOf_returnsDroneSlotsInStartOrder() {
+        List<Availability> slots = index.slotsOf("1", DayOfWeek.TUESDAY);
+
+        assertEquals(2, slots.size());
+        assertEquals(LocalTime.of(9, 0), slots.get(0).getFrom());
+        assertEquals(LocalTime.of(12, 0), slots.get(0).getUntil());
+        assertEquals(LocalTime.of(14, 0), slots.get(1).getFrom());
+        assertEquals(LocalTime.of(18, 0), slots.get(1).getUntil());
+        assertTrue(index.slotsOf("1", DayOfWeek.MONDAY).isEmpty());
+        assertTrue(index.slotsOf("99", DayOfWeek.TUESDAY).isEmpty());
+    }
+
+    @Test
+    public void testAvailableAt_manyOverlappingSlots_matchesScanningSlots() {
+        Random random = new Random(31);
+        List<DroneAvailability> drones = new ArrayList<>();
+        for (int d = 0; d < 150; d++) {
+            List<Availability> slots = new ArrayList<>();
+            for (int k = random.nextInt(4); k >= 0; k--) {
+                int from = random.nextInt(24 * 60);
+                int until = Math.min(24 * 60 - 1, from + random.nextInt(6 * 60));
+                slots.add(new Availability(DayOfWeek.FRIDAY, LocalTime.of(from / 60, from % 60), LocalTime.of(until / 60, until % 60)));
+            }
+            drones.add(new DroneAvailability("F" + d, slots));
+        }
+        AvailabilityIndex many = AvailabilityIndex.of(List.of(new DroneForServicePointResponse(1, drones)));
+
+        for (int minute = 0; minute < 24 * 60; minute += 7) {
+            LocalTime time = LocalTime.of(minute / 60, minute % 60);
+            BitSet expected = new BitSet();
+            for (DroneAvailability drone : drones) {
+                for (Availability slot : drone.getAvailability()) {
+                    if (!time.isBefore(slot.getFrom()) && !time.isAfter(slot.getUntil())) {
+                        expected.set(many.indexOf(drone.getId()));
+                    }
+                }
+            }
+            assertEquals(expected, many.availableAt(DayOfWeek.FRIDAY, time), "at " + time);
+        }
+    }
+
+    @Test
+    public void testOf_sameSnapshot_reusesIndex() {
+        assertSame(index, AvailabilityIndex.of(assignments));
+        assertNotSame(index, AvailabilityIndex.of(new ArrayList<>(assignments)));
+    }
+}
@@ -0,0 +1,63 @@
+package uk.ac.ed.acp.cw1.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import uk.ac.ed.acp.cw1.configuration.BulkheadInterceptor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkheadInterceptorTests {
+
+    private BulkheadInterceptor bulkhead;
+
+    @BeforeEach
+    public void setUp() {
+        bulkhead = new BulkheadInterceptor("upstream", 2, 0);
+    }
+
+    @Test
+    public void testPreHandle_underLimit_allowsRequests() throws Exception {
+        assertTrue(bulkhead.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), null));
+        assertTrue(bulkhead.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), null));
+        assertEquals(0, bulkhead.getAvailablePermits());
+    }
+
+    @Test
+    public void testPreHandle_full_rejectsWith503() throws Exception {
+        bulkhead.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), null);
+        bulkhead.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), null);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertFalse(bulkhead.preHandle(new MockHttpServletRequest(), response, null));
+        assertEquals(503, response.getStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+    }
+
+    @Test
+    public void testAfterCompletion_releasesPermit() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        bulkhead.preHandle(request, response, null);
+
+        bulkhead.afterCompletion(request, response, null, null);
+        // completing twice must not hand out an extra permit
+        bulkhead.afterCompletion(request, response, null, null);
+
+        assertEquals(2, bulkhead.getAvailablePermits());
+    }
+
+    @Test
+    public void testAfterCompletion_rejectedRequest_doesNotRelease() throws Exception {
+        BulkheadInterceptor single = new BulkheadInterceptor("geometry", 1, 0);
+        single.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), null);
+
+        MockHttpServletRequest rejected = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertFalse(single.preHandle(rejected, response, null));
+        single.afterCompletion(rejected, response, null, null);
+
+        assertEquals(0, single.getAvailablePermits());
+    }
+}
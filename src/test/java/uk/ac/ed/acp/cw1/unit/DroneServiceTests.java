@@ -17,6 +17,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -420,6 +422,29 @@ public class DroneServiceTests {
         assertTrue(result.isEmpty());
     }
 
+    @Test
+    void testQueryAvailableDrones_distancesComputedOncePerServicePoint() {
+        when(externalAPIService.getAllDrones()).thenReturn(testDrones);
+        when(externalAPIService.getServicePoints()).thenReturn(testServicePoints);
+        when(externalAPIService.getDronesForServicePoints()).thenReturn(testDroneAssignments);
+        when(distanceService.euclideanDistance(org.mockito.ArgumentMatchers.any(), org.mockito.ArgumentMatchers.any()))
+                .thenReturn(0.001);
+
+        List<MedDispatchRec> dispatches = List.of(
+                new MedDispatchRec(1, LocalDate.of(2024, 1, 8), LocalTime.of(10, 0),
+                        new MedDispatchRec.Requirements(5.0, false, false, 100.0), new Position(55.1, -3.1)),
+                new MedDispatchRec(2, LocalDate.of(2024, 1, 8), LocalTime.of(11, 0),
+                        new MedDispatchRec.Requirements(5.0, false, false, 100.0), new Position(55.2, -3.2))
+        );
+
+        List<String> result = droneService.queryAvailableDrones(dispatches);
+
+        // 2 service points x 2 dispatches, however many drones are checked
+        assertEquals(3, result.size());
+        verify(distanceService, times(4)).euclideanDistance(
+                org.mockito.ArgumentMatchers.any(), org.mockito.ArgumentMatchers.any());
+    }
+
     @Test
     void testQueryAvailableDrones_multipleDispatches_checksAll() {
         when(externalAPIService.getAllDrones()).thenReturn(testDrones);
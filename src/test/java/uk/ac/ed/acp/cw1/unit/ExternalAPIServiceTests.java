@@ -1,22 +1,43 @@
 package uk.ac.ed.acp.cw1.unit;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import uk.ac.ed.acp.cw1.dto.*;
+import uk.ac.ed.acp.cw1.service.DistanceService;
+import uk.ac.ed.acp.cw1.service.DroneService;
 import uk.ac.ed.acp.cw1.service.ExternalAPIService;
+import uk.ac.ed.acp.cw1.service.PathfindingService;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -32,6 +53,7 @@ public class ExternalAPIServiceTests {
     private ExternalAPIService externalAPIService;
 
     private static final String TEST_ENDPOINT = "https://test-ilp-api.example.com";
+    private static final ObjectMapper MAPPER = new ObjectMapper().findAndRegisterModules();
 
     @BeforeEach
     void setUp() {
@@ -40,6 +62,15 @@ public class ExternalAPIServiceTests {
 
     // HELPER METHODS
 
+    // the service reads raw bodies, so the mocked upstream answers with the JSON it would send
+    private static byte[] json(Object body) {
+        try {
+            return MAPPER.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     private Drone createTestDrone(String id, String name, double capacity) {
         Drone drone = new Drone();
         drone.setId(id);
@@ -93,13 +124,13 @@ public class ExternalAPIServiceTests {
                 createTestDrone("D001", "DroneAlpha", 10.0),
                 createTestDrone("D002", "DroneBeta", 15.0)
         };
-        ResponseEntity<Drone[]> responseEntity = new ResponseEntity<>(drones, HttpStatus.OK);
+        ResponseEntity<byte[]> responseEntity = new ResponseEntity<>(json(drones), HttpStatus.OK);
 
         when(restTemplate.exchange(
                 eq(TEST_ENDPOINT + "/drones"),
                 eq(HttpMethod.GET),
                 isNull(),
-                eq(Drone[].class)
+                eq(byte[].class)
         )).thenReturn(responseEntity);
 
         List<Drone> result = externalAPIService.getAllDrones();
@@ -108,19 +139,19 @@ public class ExternalAPIServiceTests {
         assertEquals(2, result.size());
         assertEquals("D001", result.get(0).getId());
         assertEquals("D002", result.get(1).getId());
-        verify(restTemplate, times(1)).exchange(anyString(), any(HttpMethod.class), any(), eq(Drone[].class));
+        verify(restTemplate, times(1)).exchange(anyString(), any(HttpMethod.class), any(), eq(byte[].class));
     }
 
     @Test
     @DisplayName("getAllDrones: Returns empty list when response body is null")
     void testGetAllDrones_nullBody_returnsEmptyList() {
-        ResponseEntity<Drone[]> responseEntity = new ResponseEntity<>(null, HttpStatus.OK);
+        ResponseEntity<byte[]> responseEntity = new ResponseEntity<>(null, HttpStatus.OK);
 
         when(restTemplate.exchange(
                 eq(TEST_ENDPOINT + "/drones"),
                 eq(HttpMethod.GET),
                 isNull(),
-                eq(Drone[].class)
+                eq(byte[].class)
         )).thenReturn(responseEntity);
 
         List<Drone> result = externalAPIService.getAllDrones();
@@ -136,7 +167,7 @@ public class ExternalAPIServiceTests {
                 eq(TEST_ENDPOINT + "/drones"),
                 eq(HttpMethod.GET),
                 isNull(),
-                eq(Drone[].class)
+                eq(byte[].class)
         )).thenThrow(new RestClientException("Connection timeout"));
 
         List<Drone> result = externalAPIService.getAllDrones();
@@ -152,7 +183,7 @@ public class ExternalAPIServiceTests {
                 eq(TEST_ENDPOINT + "/drones"),
                 eq(HttpMethod.GET),
                 isNull(),
-                eq(Drone[].class)
+                eq(byte[].class)
         )).thenThrow(new RestClientException("500 Internal Server Error"));
 
         List<Drone> result = externalAPIService.getAllDrones();
@@ -165,13 +196,13 @@ public class ExternalAPIServiceTests {
     @DisplayName("getAllDrones: Returns empty array as empty list")
     void testGetAllDrones_emptyArray_returnsEmptyList() {
         Drone[] drones = {};
-        ResponseEntity<Drone[]> responseEntity = new ResponseEntity<>(drones, HttpStatus.OK);
+        ResponseEntity<byte[]> responseEntity = new ResponseEntity<>(json(drones), HttpStatus.OK);
 
         when(restTemplate.exchange(
                 eq(TEST_ENDPOINT + "/drones"),
                 eq(HttpMethod.GET),
                 isNull(),
-                eq(Drone[].class)
+                eq(byte[].class)
         )).thenReturn(responseEntity);
 
         List<Drone> result = externalAPIService.getAllDrones();
@@ -188,13 +219,13 @@ public class ExternalAPIServiceTests {
                 createTestServicePoint("SP1", 1, 55.944, -3.188),
                 createTestServicePoint("SP2", 2, 55.945, -3.189)
         };
-        ResponseEntity<ServicePoint[]> responseEntity = new ResponseEntity<>(servicePoints, HttpStatus.OK);
+        ResponseEntity<byte[]> responseEntity = new ResponseEntity<>(json(servicePoints), HttpStatus.OK);
 
         when(restTemplate.exchange(
                 eq(TEST_ENDPOINT + "/service-points"),
                 eq(HttpMethod.GET),
                 isNull(),
-                eq(ServicePoint[].class)
+                eq(byte[].class)
         )).thenReturn(responseEntity);
 
         List<ServicePoint> result = externalAPIService.getServicePoints();
@@ -208,13 +239,13 @@ public class ExternalAPIServiceTests {
     @Test
     @DisplayName("getServicePoints: Returns empty list when response body is null")
     void testGetServicePoints_nullBody_returnsEmptyList() {
-        ResponseEntity<ServicePoint[]> responseEntity = new ResponseEntity<>(null, HttpStatus.OK);
+        ResponseEntity<byte[]> responseEntity = new ResponseEntity<>(null, HttpStatus.OK);
 
         when(restTemplate.exchange(
                 eq(TEST_ENDPOINT + "/service-points"),
                 eq(HttpMethod.GET),
                 isNull(),
-                eq(ServicePoint[].class)
+                eq(byte[].class)
         )).thenReturn(responseEntity);
 
         List<ServicePoint> result = externalAPIService.getServicePoints();
@@ -230,7 +261,7 @@ public class ExternalAPIServiceTests {
                 eq(TEST_ENDPOINT + "/service-points"),
                 eq(HttpMethod.GET),
                 isNull(),
-                eq(ServicePoint[].class)
+                eq(byte[].class)
         )).thenThrow(new RestClientException("Service unavailable"));
 
         List<ServicePoint> result = externalAPIService.getServicePoints();
@@ -243,13 +274,13 @@ public class ExternalAPIServiceTests {
     @DisplayName("getServicePoints: Returns empty array as empty list")
     void testGetServicePoints_emptyArray_returnsEmptyList() {
         ServicePoint[] servicePoints = {};
-        ResponseEntity<ServicePoint[]> responseEntity = new ResponseEntity<>(servicePoints, HttpStatus.OK);
+        ResponseEntity<byte[]> responseEntity = new ResponseEntity<>(json(servicePoints), HttpStatus.OK);
 
         when(restTemplate.exchange(
                 eq(TEST_ENDPOINT + "/service-points"),
                 eq(HttpMethod.GET),
                 isNull(),
-                eq(ServicePoint[].class)
+                eq(byte[].class)
         )).thenReturn(responseEntity);
 
         List<ServicePoint> result = externalAPIService.getServicePoints();
@@ -266,13 +297,13 @@ public class ExternalAPIServiceTests {
                 createTestRestrictedArea("Zone1"),
                 createTestRestrictedArea("Zone2")
         };
-        ResponseEntity<RestrictedArea[]> responseEntity = new ResponseEntity<>(areas, HttpStatus.OK);
+        ResponseEntity<byte[]> responseEntity = new ResponseEntity<>(json(areas), HttpStatus.OK);
 
         when(restTemplate.exchange(
                 eq(TEST_ENDPOINT + "/restricted-areas"),
                 eq(HttpMethod.GET),
                 isNull(),
-                eq(RestrictedArea[].class)
+                eq(byte[].class)
         )).thenReturn(responseEntity);
 
         List<RestrictedArea> result = externalAPIService.getRestrictedAreas();
@@ -286,13 +317,13 @@ public class ExternalAPIServiceTests {
     @Test
     @DisplayName("getRestrictedAreas: Returns empty list when response body is null")
     void testGetRestrictedAreas_nullBody_returnsEmptyList() {
-        ResponseEntity<RestrictedArea[]> responseEntity = new ResponseEntity<>(null, HttpStatus.OK);
+        ResponseEntity<byte[]> responseEntity = new ResponseEntity<>(null, HttpStatus.OK);
 
         when(restTemplate.exchange(
                 eq(TEST_ENDPOINT + "/restricted-areas"),
                 eq(HttpMethod.GET),
                 isNull(),
-                eq(RestrictedArea[].class)
+                eq(byte[].class)
         )).thenReturn(responseEntity);
 
         List<RestrictedArea> result = externalAPIService.getRestrictedAreas();
@@ -308,7 +339,7 @@ public class ExternalAPIServiceTests {
                 eq(TEST_ENDPOINT + "/restricted-areas"),
                 eq(HttpMethod.GET),
                 isNull(),
-                eq(RestrictedArea[].class)
+                eq(byte[].class)
         )).thenThrow(new RestClientException("Network error"));
 
         List<RestrictedArea> result = externalAPIService.getRestrictedAreas();
@@ -321,13 +352,13 @@ public class ExternalAPIServiceTests {
     @DisplayName("getRestrictedAreas: No zones returns empty list")
     void testGetRestrictedAreas_noZones_returnsEmptyList() {
         RestrictedArea[] areas = {};
-        ResponseEntity<RestrictedArea[]> responseEntity = new ResponseEntity<>(areas, HttpStatus.OK);
+        ResponseEntity<byte[]> responseEntity = new ResponseEntity<>(json(areas), HttpStatus.OK);
 
         when(restTemplate.exchange(
                 eq(TEST_ENDPOINT + "/restricted-areas"),
                 eq(HttpMethod.GET),
                 isNull(),
-                eq(RestrictedArea[].class)
+                eq(byte[].class)
         )).thenReturn(responseEntity);
 
         List<RestrictedArea> result = externalAPIService.getRestrictedAreas();
@@ -344,14 +375,14 @@ public class ExternalAPIServiceTests {
                 createTestDroneAssignment(1, "D001"),
                 createTestDroneAssignment(2, "D002")
         };
-        ResponseEntity<DroneForServicePointResponse[]> responseEntity =
-                new ResponseEntity<>(assignments, HttpStatus.OK);
+        ResponseEntity<byte[]> responseEntity =
+                new ResponseEntity<>(json(assignments), HttpStatus.OK);
 
         when(restTemplate.exchange(
                 eq(TEST_ENDPOINT + "/drones-for-service-points"),
                 eq(HttpMethod.GET),
                 isNull(),
-                eq(DroneForServicePointResponse[].class)
+                eq(byte[].class)
         )).thenReturn(responseEntity);
 
         List<DroneForServicePointResponse> result = externalAPIService.getDronesForServicePoints();
@@ -365,14 +396,14 @@ public class ExternalAPIServiceTests {
     @Test
     @DisplayName("getDronesForServicePoints: Returns empty list when response body is null")
     void testGetDronesForServicePoints_nullBody_returnsEmptyList() {
-        ResponseEntity<DroneForServicePointResponse[]> responseEntity =
+        ResponseEntity<byte[]> responseEntity =
                 new ResponseEntity<>(null, HttpStatus.OK);
 
         when(restTemplate.exchange(
                 eq(TEST_ENDPOINT + "/drones-for-service-points"),
                 eq(HttpMethod.GET),
                 isNull(),
-                eq(DroneForServicePointResponse[].class)
+                eq(byte[].class)
         )).thenReturn(responseEntity);
 
         List<DroneForServicePointResponse> result = externalAPIService.getDronesForServicePoints();
@@ -388,7 +419,7 @@ public class ExternalAPIServiceTests {
                 eq(TEST_ENDPOINT + "/drones-for-service-points"),
                 eq(HttpMethod.GET),
                 isNull(),
-                eq(DroneForServicePointResponse[].class)
+                eq(byte[].class)
         )).thenThrow(new RestClientException("Timeout"));
 
         List<DroneForServicePointResponse> result = externalAPIService.getDronesForServicePoints();
@@ -401,14 +432,14 @@ public class ExternalAPIServiceTests {
     @DisplayName("getDronesForServicePoints: Empty array returns empty list")
     void testGetDronesForServicePoints_emptyArray_returnsEmptyList() {
         DroneForServicePointResponse[] assignments = {};
-        ResponseEntity<DroneForServicePointResponse[]> responseEntity =
-                new ResponseEntity<>(assignments, HttpStatus.OK);
+        ResponseEntity<byte[]> responseEntity =
+                new ResponseEntity<>(json(assignments), HttpStatus.OK);
 
         when(restTemplate.exchange(
                 eq(TEST_ENDPOINT + "/drones-for-service-points"),
                 eq(HttpMethod.GET),
                 isNull(),
-                eq(DroneForServicePointResponse[].class)
+                eq(byte[].class)
         )).thenReturn(responseEntity);
 
         List<DroneForServicePointResponse> result = externalAPIService.getDronesForServicePoints();
@@ -422,13 +453,13 @@ public class ExternalAPIServiceTests {
     @DisplayName("getAllDrones: Uses correct endpoint URL")
     void testGetAllDrones_correctEndpointUrl() {
         Drone[] drones = {};
-        ResponseEntity<Drone[]> responseEntity = new ResponseEntity<>(drones, HttpStatus.OK);
+        ResponseEntity<byte[]> responseEntity = new ResponseEntity<>(json(drones), HttpStatus.OK);
 
         when(restTemplate.exchange(
                 eq(TEST_ENDPOINT + "/drones"),
                 eq(HttpMethod.GET),
                 isNull(),
-                eq(Drone[].class)
+                eq(byte[].class)
         )).thenReturn(responseEntity);
 
         externalAPIService.getAllDrones();
@@ -437,7 +468,7 @@ public class ExternalAPIServiceTests {
                 eq(TEST_ENDPOINT + "/drones"),
                 eq(HttpMethod.GET),
                 isNull(),
-                eq(Drone[].class)
+                eq(byte[].class)
         );
     }
 
@@ -445,13 +476,13 @@ public class ExternalAPIServiceTests {
     @DisplayName("getServicePoints: Uses correct endpoint URL")
     void testGetServicePoints_correctEndpointUrl() {
         ServicePoint[] servicePoints = {};
-        ResponseEntity<ServicePoint[]> responseEntity = new ResponseEntity<>(servicePoints, HttpStatus.OK);
+        ResponseEntity<byte[]> responseEntity = new ResponseEntity<>(json(servicePoints), HttpStatus.OK);
 
         when(restTemplate.exchange(
                 eq(TEST_ENDPOINT + "/service-points"),
                 eq(HttpMethod.GET),
                 isNull(),
-                eq(ServicePoint[].class)
+                eq(byte[].class)
         )).thenReturn(responseEntity);
 
         externalAPIService.getServicePoints();
@@ -460,7 +491,388 @@ public class ExternalAPIServiceTests {
                 eq(TEST_ENDPOINT + "/service-points"),
                 eq(HttpMethod.GET),
                 isNull(),
-                eq(ServicePoint[].class)
+                eq(byte[].class)
+        );
+    }
+
+    // CONDITIONAL REQUEST TESTS
+
+    @Test
+    @DisplayName("getRestrictedAreas: Sends the ETag back and reuses the list on 304")
+    void testGetRestrictedAreas_notModified_returnsSameList() {
+        RestrictedArea[] areas = {createTestRestrictedArea("George Square")};
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"v1\"");
+
+        when(restTemplate.exchange(
+                eq(TEST_ENDPOINT + "/restricted-areas"),
+                eq(HttpMethod.GET),
+                isNull(),
+                eq(byte[].class)
+        )).thenReturn(new ResponseEntity<>(json(areas), headers, HttpStatus.OK));
+        when(restTemplate.exchange(
+                eq(TEST_ENDPOINT + "/restricted-areas"),
+                eq(HttpMethod.GET),
+                argThat((HttpEntity<?> entity) -> entity != null
+                        && "\"v1\"".equals(entity.getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH))),
+                eq(byte[].class)
+        )).thenReturn(new ResponseEntity<>(HttpStatus.NOT_MODIFIED));
+
+        List<RestrictedArea> first = externalAPIService.getRestrictedAreas();
+        List<RestrictedArea> second = externalAPIService.getRestrictedAreas();
+
+        assertEquals(1, first.size());
+        assertSame(first, second);
+    }
+
+    @Test
+    @DisplayName("getServicePoints: Unchanged content without validators reuses the list")
+    void testGetServicePoints_unchangedContent_returnsSameList() {
+        when(restTemplate.exchange(
+                eq(TEST_ENDPOINT + "/service-points"),
+                eq(HttpMethod.GET),
+                isNull(),
+                eq(byte[].class)
+        )).thenReturn(
+                new ResponseEntity<>(json(new ServicePoint[]{createTestServicePoint("Appleton", 1, 55.9, -3.1)}), HttpStatus.OK),
+                new ResponseEntity<>(json(new ServicePoint[]{createTestServicePoint("Appleton", 1, 55.9, -3.1)}), HttpStatus.OK),
+                new ResponseEntity<>(json(new ServicePoint[]{createTestServicePoint("Appleton", 1, 55.8, -3.1)}), HttpStatus.OK)
+        );
+
+        List<ServicePoint> first = externalAPIService.getServicePoints();
+        List<ServicePoint> second = externalAPIService.getServicePoints();
+        List<ServicePoint> changed = externalAPIService.getServicePoints();
+
+        assertSame(first, second);
+        assertNotSame(first, changed);
+        assertEquals(55.8, changed.get(0).getLocation().getLat());
+    }
+
+    @Test
+    @DisplayName("getServicePoints: An unreadable body serves the last good list")
+    void testGetServicePoints_unreadableBody_returnsLastList() {
+        when(restTemplate.exchange(
+                eq(TEST_ENDPOINT + "/service-points"),
+                eq(HttpMethod.GET),
+                isNull(),
+                eq(byte[].class)
+        )).thenReturn(
+                new ResponseEntity<>(json(new ServicePoint[]{createTestServicePoint("Appleton", 1, 55.9, -3.1)}), HttpStatus.OK),
+                new ResponseEntity<>("<html>maintenance</html>".getBytes(), HttpStatus.OK)
         );
+
+        List<ServicePoint> first = externalAPIService.getServicePoints();
+        List<ServicePoint> second = externalAPIService.getServicePoints();
+
+        assertSame(first, second);
+        assertTrue(externalAPIService.getDatasetStatus().get("/service-points").stale());
+    }
+
+    // SINGLE-FLIGHT TESTS
+
+    @Test
+    @DisplayName("getAllDrones: Concurrent callers share one upstream request")
+    void testGetAllDrones_concurrentCalls_singleUpstreamRequest() throws Exception {
+        Drone[] drones = {createTestDrone("D001", "DroneAlpha", 10.0)};
+        CountDownLatch requestStarted = new CountDownLatch(1);
+        CountDownLatch releaseResponse = new CountDownLatch(1);
+
+        when(restTemplate.exchange(
+                eq(TEST_ENDPOINT + "/drones"),
+                eq(HttpMethod.GET),
+                isNull(),
+                eq(byte[].class)
+        )).thenAnswer(invocation -> {
+            requestStarted.countDown();
+            releaseResponse.await(5, TimeUnit.SECONDS);
+            return new ResponseEntity<>(json(drones), HttpStatus.OK);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<List<Drone>> leader = executor.submit(() -> externalAPIService.getAllDrones());
+            assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+            List<Future<List<Drone>>> followers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                followers.add(executor.submit(() -> externalAPIService.getAllDrones()));
+            }
+            // give the followers time to join the running request
+            Thread.sleep(300);
+            releaseResponse.countDown();
+
+            List<Drone> result = leader.get(5, TimeUnit.SECONDS);
+            for (Future<List<Drone>> follower : followers) {
+                assertSame(result, follower.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(restTemplate, times(1)).exchange(anyString(), any(HttpMethod.class), any(), eq(byte[].class));
+    }
+
+    @Test
+    @DisplayName("getAllDrones: Concurrent callers see the shared request's own exception")
+    void testGetAllDrones_concurrentCallsFail_followersGetCause() throws Exception {
+        CountDownLatch requestStarted = new CountDownLatch(1);
+        CountDownLatch releaseResponse = new CountDownLatch(1);
+
+        when(restTemplate.exchange(
+                eq(TEST_ENDPOINT + "/drones"),
+                eq(HttpMethod.GET),
+                isNull(),
+                eq(byte[].class)
+        )).thenAnswer(invocation -> {
+            requestStarted.countDown();
+            releaseResponse.await(5, TimeUnit.SECONDS);
+            throw new IllegalStateException("bad body");
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<Drone>> leader = executor.submit(() -> externalAPIService.getAllDrones());
+            assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+            Future<List<Drone>> follower = executor.submit(() -> externalAPIService.getAllDrones());
+            // give the follower time to join the running request
+            Thread.sleep(300);
+            releaseResponse.countDown();
+
+            ExecutionException leaderFailure = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+            ExecutionException followerFailure = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, leaderFailure.getCause());
+            assertSame(leaderFailure.getCause(), followerFailure.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(restTemplate, times(1)).exchange(anyString(), any(HttpMethod.class), any(), eq(byte[].class));
+    }
+
+    @Test
+    @DisplayName("getAllDrones: Sequential calls each go upstream")
+    void testGetAllDrones_sequentialCalls_notCoalesced() {
+        when(restTemplate.exchange(
+                eq(TEST_ENDPOINT + "/drones"),
+                eq(HttpMethod.GET),
+                isNull(),
+                eq(byte[].class)
+        )).thenReturn(new ResponseEntity<>(json(new Drone[]{createTestDrone("D001", "DroneAlpha", 10.0)}), HttpStatus.OK));
+
+        externalAPIService.getAllDrones();
+        externalAPIService.getAllDrones();
+
+        verify(restTemplate, times(2)).exchange(anyString(), any(HttpMethod.class), any(), eq(byte[].class));
+    }
+
+    // CIRCUIT BREAKER TESTS
+
+    @Test
+    @DisplayName("getAllDrones: Open breaker fails fast with the last good data")
+    void testGetAllDrones_breakerOpen_servesLastGoodData() {
+        externalAPIService.setFailureThreshold(2);
+        externalAPIService.setOpenDuration(Duration.ofHours(1));
+        when(restTemplate.exchange(
+                eq(TEST_ENDPOINT + "/drones"),
+                eq(HttpMethod.GET),
+                isNull(),
+                eq(byte[].class)
+        )).thenReturn(new ResponseEntity<>(json(new Drone[]{createTestDrone("D001", "DroneAlpha", 10.0)}), HttpStatus.OK))
+                .thenThrow(new RestClientException("Connection timeout"));
+
+        List<Drone> good = externalAPIService.getAllDrones();
+        // two failures open the breaker, both still answer with the last good list
+        assertSame(good, externalAPIService.getAllDrones());
+        assertSame(good, externalAPIService.getAllDrones());
+        // open: no upstream call at all
+        assertSame(good, externalAPIService.getAllDrones());
+
+        verify(restTemplate, times(3)).exchange(anyString(), any(HttpMethod.class), any(), eq(byte[].class));
+        ExternalAPIService.DatasetStatus status = externalAPIService.getDatasetStatus().get("/drones");
+        assertEquals("OPEN", status.circuitState());
+        assertTrue(status.stale());
+        assertNotNull(status.lastSuccess());
+    }
+
+    @Test
+    @DisplayName("getAllDrones: Half-open probe with an unreadable body reopens the breaker")
+    void testGetAllDrones_halfOpenProbeUnreadableBody_reopensBreaker() {
+        externalAPIService.setFailureThreshold(3);
+        externalAPIService.setOpenDuration(Duration.ZERO);
+        when(restTemplate.exchange(
+                eq(TEST_ENDPOINT + "/drones"),
+                eq(HttpMethod.GET),
+                isNull(),
+                eq(byte[].class)
+        )).thenReturn(new ResponseEntity<>(json(new Drone[]{createTestDrone("D001", "DroneAlpha", 10.0)}), HttpStatus.OK))
+                .thenThrow(new RestClientException("Connection timeout"))
+                .thenThrow(new RestClientException("Connection timeout"))
+                .thenThrow(new RestClientException("Connection timeout"))
+                .thenReturn(new ResponseEntity<>("<html>maintenance</html>".getBytes(), HttpStatus.OK));
+
+        List<Drone> good = externalAPIService.getAllDrones();
+        Instant lastSuccess = externalAPIService.getDatasetStatus().get("/drones").lastSuccess();
+        for (int i = 0; i < 3; i++) {
+            externalAPIService.getAllDrones();
+        }
+        assertEquals("OPEN", externalAPIService.getDatasetStatus().get("/drones").circuitState());
+
+        // the open period is over, so this call is the probe
+        assertSame(good, externalAPIService.getAllDrones());
+
+        ExternalAPIService.DatasetStatus status = externalAPIService.getDatasetStatus().get("/drones");
+        assertEquals("OPEN", status.circuitState());
+        assertTrue(status.stale());
+        assertEquals(lastSuccess, status.lastSuccess());
+    }
+
+    @Test
+    @DisplayName("getAllDrones: Successful half-open probe closes the breaker")
+    void testGetAllDrones_halfOpenProbeSucceeds_closesBreaker() {
+        externalAPIService.setFailureThreshold(1);
+        externalAPIService.setOpenDuration(Duration.ZERO);
+        when(restTemplate.exchange(
+                eq(TEST_ENDPOINT + "/drones"),
+                eq(HttpMethod.GET),
+                isNull(),
+                eq(byte[].class)
+        )).thenThrow(new RestClientException("Connection timeout"))
+                .thenReturn(new ResponseEntity<>(json(new Drone[]{createTestDrone("D001", "DroneAlpha", 10.0)}), HttpStatus.OK));
+
+        assertTrue(externalAPIService.getAllDrones().isEmpty());
+        assertEquals("OPEN", externalAPIService.getDatasetStatus().get("/drones").circuitState());
+
+        List<Drone> result = externalAPIService.getAllDrones();
+
+        assertEquals(1, result.size());
+        ExternalAPIService.DatasetStatus status = externalAPIService.getDatasetStatus().get("/drones");
+        assertEquals("CLOSED", status.circuitState());
+        assertFalse(status.stale());
+    }
+
+    // SNAPSHOT FILE TESTS
+
+    @Test
+    @DisplayName("getServicePoints: Snapshot from a previous run is served while the upstream is down")
+    void testGetServicePoints_snapshotFile_servedWhenUpstreamDown(@TempDir Path tempDir) {
+        String snapshotPath = tempDir.resolve("snapshot.json.gz").toString();
+        externalAPIService.setSnapshotPath(snapshotPath);
+        externalAPIService.loadSnapshot();
+        when(restTemplate.exchange(
+                eq(TEST_ENDPOINT + "/service-points"),
+                eq(HttpMethod.GET),
+                isNull(),
+                eq(byte[].class)
+        )).thenReturn(new ResponseEntity<>(json(new ServicePoint[]{createTestServicePoint("Appleton", 1, 55.9, -3.1)}), HttpStatus.OK))
+                .thenThrow(new RestClientException("Connection refused"));
+
+        List<ServicePoint> fetched = externalAPIService.getServicePoints();
+
+        // a restarted service only has the file to go on
+        ExternalAPIService restarted = new ExternalAPIService(restTemplate, TEST_ENDPOINT);
+        restarted.setSnapshotPath(snapshotPath);
+        restarted.loadSnapshot();
+        List<ServicePoint> result = restarted.getServicePoints();
+
+        assertEquals(fetched, result);
+        assertTrue(restarted.getDatasetStatus().get("/service-points").stale());
+    }
+
+    @Test
+    @DisplayName("calcDeliveryPath: A service started from a snapshot plans without waiting on an unreachable upstream")
+    void testCalcDeliveryPath_bootSnapshotUpstreamDown_plansWithoutWaiting(@TempDir Path tempDir) {
+        String snapshotPath = tempDir.resolve("snapshot.json.gz").toString();
+        externalAPIService.setSnapshotPath(snapshotPath);
+        externalAPIService.loadSnapshot();
+        when(restTemplate.exchange(eq(TEST_ENDPOINT + "/drones"), eq(HttpMethod.GET), isNull(), eq(byte[].class)))
+                .thenReturn(new ResponseEntity<>(json(new Drone[]{createTestDrone("D001", "DroneAlpha", 10.0)}), HttpStatus.OK));
+        when(restTemplate.exchange(eq(TEST_ENDPOINT + "/service-points"), eq(HttpMethod.GET), isNull(), eq(byte[].class)))
+                .thenReturn(new ResponseEntity<>(json(new ServicePoint[]{createTestServicePoint("Appleton", 1, 55.9, -3.1)}), HttpStatus.OK));
+        when(restTemplate.exchange(eq(TEST_ENDPOINT + "/drones-for-service-points"), eq(HttpMethod.GET), isNull(), eq(byte[].class)))
+                .thenReturn(new ResponseEntity<>(json(new DroneForServicePointResponse[]{createTestDroneAssignment(1, "D001")}), HttpStatus.OK));
+        when(restTemplate.exchange(eq(TEST_ENDPOINT + "/restricted-areas"), eq(HttpMethod.GET), isNull(), eq(byte[].class)))
+                .thenReturn(new ResponseEntity<>(json(new RestrictedArea[]{createTestRestrictedArea("George Square")}), HttpStatus.OK));
+        // the previous run saved every dataset
+        externalAPIService.getAllDrones();
+        externalAPIService.getServicePoints();
+        externalAPIService.getDronesForServicePoints();
+        externalAPIService.getRestrictedAreas();
+
+        // every request of the restarted service hangs for the connect timeout and then fails
+        RestTemplate unreachable = mock(RestTemplate.class);
+        when(unreachable.exchange(anyString(), any(HttpMethod.class), any(), eq(byte[].class))).thenAnswer(invocation -> {
+            Thread.sleep(3000);
+            throw new ResourceAccessException("Connect timed out");
+        });
+        ExternalAPIService restarted = new ExternalAPIService(unreachable, TEST_ENDPOINT);
+        restarted.setSnapshotPath(snapshotPath);
+        restarted.loadSnapshot();
+        DistanceService distanceService = new DistanceService();
+        PathfindingService pathfindingService = new PathfindingService(distanceService, restarted,
+                new DroneService(restarted, distanceService));
+        MedDispatchRec dispatch = new MedDispatchRec();
+        dispatch.setId(1);
+        dispatch.setDate(LocalDate.of(2025, 12, 22));
+        dispatch.setTime(LocalTime.of(10, 0));
+        dispatch.setDelivery(new Position(55.901, -3.1));
+        MedDispatchRec.Requirements requirements = new MedDispatchRec.Requirements();
+        requirements.setCapacity(2.0);
+        dispatch.setRequirements(requirements);
+
+        long start = System.nanoTime();
+        CalcDeliveryPathResponse response = pathfindingService.calcDeliveryPath(List.of(dispatch));
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(1, response.getDronePaths().size());
+        assertTrue(millis < 1000, "first plan took " + millis + "ms");
+        assertTrue(restarted.getDatasetStatus().get("/drones").stale());
+    }
+
+    @Test
+    @DisplayName("getServicePoints: A dataset from the snapshot is fetched as usual once the background fetch succeeds")
+    void testGetServicePoints_bootSnapshot_refreshedInBackground(@TempDir Path tempDir) throws Exception {
+        String snapshotPath = tempDir.resolve("snapshot.json.gz").toString();
+        externalAPIService.setSnapshotPath(snapshotPath);
+        externalAPIService.loadSnapshot();
+        when(restTemplate.exchange(
+                eq(TEST_ENDPOINT + "/service-points"),
+                eq(HttpMethod.GET),
+                isNull(),
+                eq(byte[].class)
+        )).thenReturn(
+                new ResponseEntity<>(json(new ServicePoint[]{createTestServicePoint("Appleton", 1, 55.9, -3.1)}), HttpStatus.OK),
+                // the background fetch gets the same content, so it has nothing to write to the file
+                new ResponseEntity<>(json(new ServicePoint[]{createTestServicePoint("Appleton", 1, 55.9, -3.1)}), HttpStatus.OK),
+                new ResponseEntity<>(json(new ServicePoint[]{createTestServicePoint("Appleton", 1, 55.8, -3.1)}), HttpStatus.OK));
+        externalAPIService.getServicePoints();
+
+        ExternalAPIService restarted = new ExternalAPIService(restTemplate, TEST_ENDPOINT);
+        restarted.setSnapshotPath(snapshotPath);
+        restarted.loadSnapshot();
+        List<ServicePoint> boot = restarted.getServicePoints();
+        for (int i = 0; i < 100 && restarted.getDatasetStatus().get("/service-points").lastSuccess() == null; i++) {
+            Thread.sleep(20);
+        }
+        List<ServicePoint> refreshed = restarted.getServicePoints();
+
+        assertEquals(55.9, boot.get(0).getLocation().getLat());
+        assertEquals(55.8, refreshed.get(0).getLocation().getLat());
+        assertFalse(restarted.getDatasetStatus().get("/service-points").stale());
+        // the saving run, the background fetch, then an ordinary fetch once the dataset was refreshed
+        verify(restTemplate, times(3)).exchange(anyString(), any(HttpMethod.class), any(), eq(byte[].class));
+    }
+
+    @Test
+    @DisplayName("loadSnapshot: Missing or corrupt snapshot file is ignored")
+    void testLoadSnapshot_corruptFile_ignored(@TempDir Path tempDir) throws Exception {
+        Path snapshotFile = tempDir.resolve("snapshot.json.gz");
+        Files.writeString(snapshotFile, "not gzip");
+        externalAPIService.setSnapshotPath(snapshotFile.toString());
+
+        assertDoesNotThrow(() -> externalAPIService.loadSnapshot());
+        when(restTemplate.exchange(
+                eq(TEST_ENDPOINT + "/drones"),
+                eq(HttpMethod.GET),
+                isNull(),
+                eq(byte[].class)
+        )).thenThrow(new RestClientException("Connection refused"));
+        assertTrue(externalAPIService.getAllDrones().isEmpty());
     }
 }
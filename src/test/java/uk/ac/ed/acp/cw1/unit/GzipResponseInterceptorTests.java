@@ -0,0 +1,66 @@
+package uk.ac.ed.acp.cw1.unit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import uk.ac.ed.acp.cw1.configuration.GzipResponseInterceptor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GzipResponseInterceptorTests {
+
+    private final GzipResponseInterceptor interceptor = new GzipResponseInterceptor();
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testIntercept_gzipResponse_isDecompressed() throws IOException {
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.GET, URI.create("http://localhost/drones"));
+        MockClientHttpResponse upstream = new MockClientHttpResponse(gzip("[]"), HttpStatus.OK);
+        upstream.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+        ClientHttpResponse response = interceptor.intercept(request, new byte[0], (req, body) -> upstream);
+
+        assertEquals("gzip", request.getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING));
+        assertEquals("[]", new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8));
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    public void testIntercept_plainResponse_isUnchanged() throws IOException {
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.GET, URI.create("http://localhost/drones"));
+        MockClientHttpResponse upstream = new MockClientHttpResponse("[]".getBytes(StandardCharsets.UTF_8), HttpStatus.OK);
+
+        ClientHttpResponse response = interceptor.intercept(request, new byte[0], (req, body) -> upstream);
+
+        assertSame(upstream, response);
+    }
+
+    @Test
+    public void testIntercept_emptyGzipResponse_hasEmptyBody() throws IOException {
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.GET, URI.create("http://localhost/drones"));
+        MockClientHttpResponse upstream = new MockClientHttpResponse(new byte[0], HttpStatus.NOT_MODIFIED);
+        upstream.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+        ClientHttpResponse response = interceptor.intercept(request, new byte[0], (req, body) -> upstream);
+
+        assertEquals(0, response.getBody().readAllBytes().length);
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+    }
+}
@@ -1,11 +1,14 @@
 package uk.ac.ed.acp.cw1.unit;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import uk.ac.ed.acp.cw1.configuration.PlanningProperties;
 import uk.ac.ed.acp.cw1.dto.*;
 import uk.ac.ed.acp.cw1.service.DistanceService;
 import uk.ac.ed.acp.cw1.service.DroneService;
@@ -16,7 +19,12 @@ import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.lenient;
@@ -34,6 +42,7 @@ public class PathfindingServiceTests {
 
     private DistanceService distanceService;
     private PathfindingService pathfindingService;
+    private ExecutorService planningExecutor;
 
     // Test constants
     private static final double DELTA = 0.00001;
@@ -46,6 +55,13 @@ public class PathfindingServiceTests {
     void setUp() {
         distanceService = new DistanceService();
         pathfindingService = new PathfindingService(distanceService, externalAPIService, droneService);
+        planningExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        pathfindingService.setPlanningExecutor(planningExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        planningExecutor.close();
     }
 
     // HELPER METHODS
@@ -123,6 +139,39 @@ public class PathfindingServiceTests {
         return vertices;
     }
 
+    // U shaped zone open towards the west, the inside of the cup is a dead end for greedy search
+    private List<Position> createCupZone(double centerLat, double centerLng, double halfSize) {
+        double inner = halfSize * 0.8;
+        List<Position> vertices = new ArrayList<>();
+        vertices.add(new Position(centerLat - halfSize, centerLng - halfSize));
+        vertices.add(new Position(centerLat - halfSize, centerLng + halfSize));
+        vertices.add(new Position(centerLat + halfSize, centerLng + halfSize));
+        vertices.add(new Position(centerLat + halfSize, centerLng - halfSize));
+        vertices.add(new Position(centerLat + inner, centerLng - halfSize));
+        vertices.add(new Position(centerLat + inner, centerLng + inner));
+        vertices.add(new Position(centerLat - inner, centerLng + inner));
+        vertices.add(new Position(centerLat - inner, centerLng - halfSize));
+        vertices.add(new Position(centerLat - halfSize, centerLng - halfSize)); // Close polygon
+        return vertices;
+    }
+
+    // every step is either a hover (same position) or exactly one move, and never enters the zone
+    // except the drop-off marker, a step shorter than a move onto the delivery point that is then hovered on
+    private void assertValidFlightPath(List<Position> flightPath, RestrictedArea zone) {
+        Region region = new Region(zone.getName(), zone.getVertices());
+        for (int i = 0; i < flightPath.size(); i++) {
+            assertFalse(distanceService.isInRegion(flightPath.get(i), region), "Position " + i + " is inside the zone");
+            if (i > 0) {
+                double step = distanceService.euclideanDistance(flightPath.get(i - 1), flightPath.get(i));
+                boolean marker = i == flightPath.size() - 2
+                        && flightPath.get(i).equals(flightPath.get(i + 1))
+                        && step < 0.00015;
+                assertTrue(step < DELTA || Math.abs(step - 0.00015) < DELTA || marker,
+                        "Invalid move length at " + i + " of " + flightPath.size() + " step " + step);
+            }
+        }
+    }
+
     private void setupBasicMocks() {
         Drone drone = createTestDrone("D001", 20.0, 5000, true, true);
         ServicePoint sp = createServicePoint("SP1", 1, EDINBURGH_LAT, EDINBURGH_LNG);
@@ -602,6 +651,27 @@ public class PathfindingServiceTests {
         assertTrue(response.getDronePaths().isEmpty(), "Drone with insufficient maxMoves should not be assigned");
     }
 
+    @Test
+    @DisplayName("calcDeliveryPath: Drone without maxMoves is treated as unlimited")
+    void testCalcDeliveryPath_nullMaxMoves_treatedAsUnlimited() {
+        setupBasicMocks();
+        Drone unlimitedDrone = createTestDrone("D001", 20.0, 0, true, true);
+        unlimitedDrone.getCapability().setMaxMoves(null);
+        when(externalAPIService.getAllDrones()).thenReturn(List.of(unlimitedDrone));
+
+        List<MedDispatchRec> dispatches = List.of(
+                createDispatch(1, 2.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(14, 30),
+                        new Position(EDINBURGH_LAT + 0.002, EDINBURGH_LNG)),
+                createDispatch(2, 2.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(14, 30),
+                        new Position(EDINBURGH_LAT + 0.004, EDINBURGH_LNG)));
+
+        CalcDeliveryPathResponse response = pathfindingService.calcDeliveryPath(dispatches);
+
+        assertEquals(1, response.getDronePaths().size());
+        assertEquals("D001", response.getDronePaths().get(0).getDroneId());
+        assertTrue(response.getTotalMoves() > 0);
+    }
+
     @Test
     @DisplayName("calcDeliveryPath: Dispatch with null time is handled")
     void testCalcDeliveryPath_nullTime_handledCorrectly() {
@@ -1027,4 +1097,624 @@ public class PathfindingServiceTests {
             assertEquals(2.0, response.getTotalCost(), 0.001);
         }
     }
+
+    @Test
+    @DisplayName("calcDeliveryPath: Jump point search escapes a concave zone")
+    void testCalcDeliveryPath_jumpPointSearch_escapesConcaveZone() {
+        Drone drone = createTestDrone("D001", 20.0, 50000, true, true);
+        // Service point sits inside the cup so greedy search gets stuck and A* has to run
+        ServicePoint sp = createServicePoint("SP1", 1, EDINBURGH_LAT, EDINBURGH_LNG + 0.0032);
+        DroneForServicePointResponse assignment = createDroneAssignment(1, "D001");
+        RestrictedArea cup = createRestrictedArea("Cup", createCupZone(EDINBURGH_LAT, EDINBURGH_LNG + 0.002, 0.002));
+
+        when(externalAPIService.getAllDrones()).thenReturn(List.of(drone));
+        when(externalAPIService.getServicePoints()).thenReturn(List.of(sp));
+        when(externalAPIService.getDronesForServicePoints()).thenReturn(List.of(assignment));
+        when(externalAPIService.getRestrictedAreas()).thenReturn(List.of(cup));
+
+        Position delivery = new Position(EDINBURGH_LAT, EDINBURGH_LNG + 0.006);
+        MedDispatchRec dispatch = createDispatch(1, 5.0, false, false,
+                LocalDate.of(2025, 12, 22), LocalTime.of(14, 30), delivery);
+
+        pathfindingService.setJumpPointSearch(true);
+        CalcDeliveryPathResponse response = pathfindingService.calcDeliveryPath(List.of(dispatch));
+
+        assertEquals(1, response.getDronePaths().size());
+        for (Delivery d : response.getDronePaths().get(0).getDeliveries()) {
+            assertValidFlightPath(d.getFlightPath(), cup);
+        }
+        List<Position> outbound = response.getDronePaths().get(0).getDeliveries().get(0).getFlightPath();
+        assertTrue(distanceService.isCloseTo(outbound.get(outbound.size() - 1), delivery));
+    }
+
+    @Test
+    @DisplayName("calcDeliveryPath: Jump point search and exhaustive search both deliver around a concave zone")
+    void testCalcDeliveryPath_jumpPointSearch_matchesExhaustiveSearch() {
+        Drone drone = createTestDrone("D001", 20.0, 50000, true, true);
+        ServicePoint sp = createServicePoint("SP1", 1, EDINBURGH_LAT, EDINBURGH_LNG + 0.0032);
+        DroneForServicePointResponse assignment = createDroneAssignment(1, "D001");
+        RestrictedArea cup = createRestrictedArea("Cup", createCupZone(EDINBURGH_LAT, EDINBURGH_LNG + 0.002, 0.002));
+
+        when(externalAPIService.getAllDrones()).thenReturn(List.of(drone));
+        when(externalAPIService.getServicePoints()).thenReturn(List.of(sp));
+        when(externalAPIService.getDronesForServicePoints()).thenReturn(List.of(assignment));
+        when(externalAPIService.getRestrictedAreas()).thenReturn(List.of(cup));
+
+        MedDispatchRec dispatch = createDispatch(1, 5.0, false, false,
+                LocalDate.of(2025, 12, 22), LocalTime.of(14, 30),
+                new Position(EDINBURGH_LAT, EDINBURGH_LNG + 0.006));
+
+        pathfindingService.setJumpPointSearch(false);
+        CalcDeliveryPathResponse exhaustive = pathfindingService.calcDeliveryPath(List.of(dispatch));
+        pathfindingService.setJumpPointSearch(true);
+        CalcDeliveryPathResponse pruned = pathfindingService.calcDeliveryPath(List.of(dispatch));
+
+        assertEquals(1, exhaustive.getDronePaths().size());
+        assertEquals(1, pruned.getDronePaths().size());
+        // pruning keeps the path near optimal
+        assertTrue(pruned.getTotalMoves() <= exhaustive.getTotalMoves() * 1.2);
+    }
+
+    @Test
+    @Timeout(value = 5, unit = TimeUnit.SECONDS)
+    @DisplayName("calcDeliveryPath: Local planner follows the zone boundary instead of oscillating")
+    void testCalcDeliveryPath_localPlanner_followsBoundaryOutOfConcaveZone() {
+        Drone drone = createTestDrone("D001", 20.0, 50000, true, true);
+        ServicePoint sp = createServicePoint("SP1", 1, EDINBURGH_LAT, EDINBURGH_LNG + 0.0032);
+        DroneForServicePointResponse assignment = createDroneAssignment(1, "D001");
+        RestrictedArea cup = createRestrictedArea("Cup", createCupZone(EDINBURGH_LAT, EDINBURGH_LNG + 0.002, 0.002));
+
+        when(externalAPIService.getAllDrones()).thenReturn(List.of(drone));
+        when(externalAPIService.getServicePoints()).thenReturn(List.of(sp));
+        when(externalAPIService.getDronesForServicePoints()).thenReturn(List.of(assignment));
+        when(externalAPIService.getRestrictedAreas()).thenReturn(List.of(cup));
+
+        MedDispatchRec dispatch = createDispatch(1, 5.0, false, false,
+                LocalDate.of(2025, 12, 22), LocalTime.of(14, 30),
+                new Position(EDINBURGH_LAT, EDINBURGH_LNG + 0.006));
+
+        CalcDeliveryPathResponse response = pathfindingService.calcDeliveryPath(List.of(dispatch));
+
+        assertEquals(1, response.getDronePaths().size());
+        for (Delivery d : response.getDronePaths().get(0).getDeliveries()) {
+            assertValidFlightPath(d.getFlightPath(), cup);
+        }
+        // greedy search used to oscillate inside the cup for 10,000 moves
+        assertTrue(response.getTotalMoves() < 1000, "Path should leave the cup along its boundary");
+    }
+
+    @Test
+    @DisplayName("calcDeliveryPath: Local planner keeps straight paths in open airspace")
+    void testCalcDeliveryPath_localPlanner_straightPathAroundDistantZone() {
+        Drone drone = createTestDrone("D001", 20.0, 5000, true, true);
+        ServicePoint sp = createServicePoint("SP1", 1, EDINBURGH_LAT, EDINBURGH_LNG);
+        DroneForServicePointResponse assignment = createDroneAssignment(1, "D001");
+        RestrictedArea farZone = createRestrictedArea("FarZone",
+                createSquareZone(EDINBURGH_LAT - 0.01, EDINBURGH_LNG - 0.01, 0.001));
+
+        when(externalAPIService.getAllDrones()).thenReturn(List.of(drone));
+        when(externalAPIService.getServicePoints()).thenReturn(List.of(sp));
+        when(externalAPIService.getDronesForServicePoints()).thenReturn(List.of(assignment));
+        when(externalAPIService.getRestrictedAreas()).thenReturn(List.of(farZone));
+
+        // 0.0015 due north is exactly 10 moves
+        MedDispatchRec dispatch = createDispatch(1, 5.0, false, false,
+                LocalDate.of(2025, 12, 22), LocalTime.of(14, 30),
+                new Position(EDINBURGH_LAT + 0.0015, EDINBURGH_LNG));
+
+        CalcDeliveryPathResponse response = pathfindingService.calcDeliveryPath(List.of(dispatch));
+
+        assertEquals(1, response.getDronePaths().size());
+        List<Position> outbound = response.getDronePaths().get(0).getDeliveries().get(0).getFlightPath();
+        // 10 moves plus the two hover positions
+        assertTrue(outbound.size() <= 13, "Open airspace path should be straight");
+    }
+
+    @Test
+    @DisplayName("calcDeliveryPath: Reused search workspaces give identical paths")
+    void testCalcDeliveryPath_reusedWorkspaces_identicalPaths() {
+        Drone drone = createTestDrone("D001", 20.0, 50000, true, true);
+        ServicePoint sp = createServicePoint("SP1", 1, EDINBURGH_LAT, EDINBURGH_LNG + 0.0032);
+        DroneForServicePointResponse assignment = createDroneAssignment(1, "D001");
+        RestrictedArea cup = createRestrictedArea("Cup", createCupZone(EDINBURGH_LAT, EDINBURGH_LNG + 0.002, 0.002));
+
+        when(externalAPIService.getAllDrones()).thenReturn(List.of(drone));
+        when(externalAPIService.getServicePoints()).thenReturn(List.of(sp));
+        when(externalAPIService.getDronesForServicePoints()).thenReturn(List.of(assignment));
+        when(externalAPIService.getRestrictedAreas()).thenReturn(List.of(cup));
+
+        MedDispatchRec dispatch = createDispatch(1, 5.0, false, false,
+                LocalDate.of(2025, 12, 22), LocalTime.of(14, 30),
+                new Position(EDINBURGH_LAT + 0.003, EDINBURGH_LNG + 0.006));
+
+        CalcDeliveryPathResponse first = pathfindingService.calcDeliveryPath(List.of(dispatch));
+        for (int i = 0; i < 5; i++) {
+            CalcDeliveryPathResponse again = pathfindingService.calcDeliveryPath(List.of(dispatch));
+            assertEquals(first.getDronePaths(), again.getDronePaths(), "Run " + i + " should match the first run");
+        }
+    }
+
+    @Test
+    @DisplayName("calcDeliveryPath: Parallel legs are stitched in the same order as sequential legs")
+    void testCalcDeliveryPath_parallelLegs_matchSequentialLegs() {
+        Drone drone = createTestDrone("D001", 20.0, 50000, true, true);
+        ServicePoint sp = createServicePoint("SP1", 1, EDINBURGH_LAT, EDINBURGH_LNG);
+        DroneForServicePointResponse assignment = createDroneAssignment(1, "D001");
+        RestrictedArea zone = createRestrictedArea("NoFlyZone",
+                createSquareZone(EDINBURGH_LAT + 0.002, EDINBURGH_LNG + 0.002, 0.0008));
+
+        when(externalAPIService.getAllDrones()).thenReturn(List.of(drone));
+        when(externalAPIService.getServicePoints()).thenReturn(List.of(sp));
+        when(externalAPIService.getDronesForServicePoints()).thenReturn(List.of(assignment));
+        when(externalAPIService.getRestrictedAreas()).thenReturn(List.of(zone));
+
+        List<MedDispatchRec> dispatches = List.of(
+                createDispatch(1, 2.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(14, 30),
+                        new Position(EDINBURGH_LAT + 0.004, EDINBURGH_LNG + 0.004)),
+                createDispatch(2, 2.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(14, 30),
+                        new Position(EDINBURGH_LAT + 0.001, EDINBURGH_LNG + 0.004)),
+                createDispatch(3, 2.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(14, 30),
+                        new Position(EDINBURGH_LAT + 0.004, EDINBURGH_LNG)));
+
+        pathfindingService.setParallelLegs(false);
+        CalcDeliveryPathResponse sequential = pathfindingService.calcDeliveryPath(dispatches);
+        pathfindingService.setParallelLegs(true);
+        CalcDeliveryPathResponse parallel = pathfindingService.calcDeliveryPath(dispatches);
+
+        assertEquals(sequential, parallel);
+        // three deliveries and the return leg
+        assertEquals(4, parallel.getDronePaths().get(0).getDeliveries().size());
+        assertNull(parallel.getDronePaths().get(0).getDeliveries().get(3).getDeliveryId());
+    }
+
+    @Test
+    @DisplayName("calcDeliveryPath: Speculative mode commits the drone covering the most dispatches")
+    void testCalcDeliveryPath_speculativeDrones_commitsBestPlan() {
+        Drone small = createTestDrone("D001", 5.0, 5000, true, true);
+        Drone large = createTestDrone("D002", 20.0, 5000, true, true);
+        ServicePoint sp = createServicePoint("SP1", 1, EDINBURGH_LAT, EDINBURGH_LNG);
+        DroneForServicePointResponse assignment = createDroneAssignment(1, "D001", "D002");
+
+        when(externalAPIService.getAllDrones()).thenReturn(List.of(small, large));
+        when(externalAPIService.getServicePoints()).thenReturn(List.of(sp));
+        when(externalAPIService.getDronesForServicePoints()).thenReturn(List.of(assignment));
+        when(externalAPIService.getRestrictedAreas()).thenReturn(new ArrayList<>());
+
+        List<MedDispatchRec> dispatches = List.of(
+                createDispatch(1, 4.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(14, 0),
+                        new Position(EDINBURGH_LAT + 0.001, EDINBURGH_LNG)),
+                createDispatch(2, 4.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(14, 0),
+                        new Position(EDINBURGH_LAT + 0.002, EDINBURGH_LNG)));
+
+        pathfindingService.setSpeculativeDrones(false);
+        CalcDeliveryPathResponse sequential = pathfindingService.calcDeliveryPath(dispatches);
+        pathfindingService.setSpeculativeDrones(true);
+        CalcDeliveryPathResponse speculative = pathfindingService.calcDeliveryPath(dispatches);
+
+        // the small drone goes first in fleet order and can only carry one dispatch
+        assertEquals(2, sequential.getDronePaths().size());
+        assertEquals(1, speculative.getDronePaths().size());
+        assertEquals("D002", speculative.getDronePaths().get(0).getDroneId());
+        assertTrue(speculative.getTotalCost() < sequential.getTotalCost());
+    }
+
+    @Test
+    @DisplayName("calcDeliveryPath: Speculative mode is reproducible")
+    void testCalcDeliveryPath_speculativeDrones_reproducible() {
+        Drone drone1 = createTestDrone("D001", 20.0, 5000, true, true);
+        Drone drone2 = createTestDrone("D002", 20.0, 5000, true, true);
+        Drone drone3 = createTestDrone("D003", 20.0, 5000, true, true);
+        ServicePoint sp = createServicePoint("SP1", 1, EDINBURGH_LAT, EDINBURGH_LNG);
+        DroneForServicePointResponse assignment = createDroneAssignment(1, "D001", "D002", "D003");
+
+        when(externalAPIService.getAllDrones()).thenReturn(List.of(drone1, drone2, drone3));
+        when(externalAPIService.getServicePoints()).thenReturn(List.of(sp));
+        when(externalAPIService.getDronesForServicePoints()).thenReturn(List.of(assignment));
+        when(externalAPIService.getRestrictedAreas()).thenReturn(new ArrayList<>());
+
+        List<MedDispatchRec> dispatches = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            dispatches.add(createDispatch(i, 5.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(14, 0),
+                    new Position(EDINBURGH_LAT + 0.0005 * i, EDINBURGH_LNG - 0.0003 * i)));
+        }
+
+        pathfindingService.setSpeculativeDrones(true);
+        CalcDeliveryPathResponse first = pathfindingService.calcDeliveryPath(dispatches);
+        CalcDeliveryPathResponse second = pathfindingService.calcDeliveryPath(dispatches);
+
+        assertEquals(first, second);
+        // equally good plans go to the drone earliest in the fleet
+        assertEquals("D001", first.getDronePaths().get(0).getDroneId());
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    @DisplayName("calcDeliveryPath: Speculative plans with parallel legs finish on a single planning thread")
+    void testCalcDeliveryPath_speculativeParallelLegs_boundedExecutor() {
+        setupBasicMocks();
+        List<MedDispatchRec> dispatches = List.of(
+                createDispatch(1, 2.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(10, 0),
+                        new Position(EDINBURGH_LAT + 0.001, EDINBURGH_LNG)),
+                createDispatch(2, 2.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(10, 0),
+                        new Position(EDINBURGH_LAT + 0.002, EDINBURGH_LNG + 0.001)));
+        // a speculative plan holding the only thread must not wait for its legs to be queued behind it
+        ExecutorService singleThread = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task);
+            thread.setDaemon(true);
+            return thread;
+        });
+        pathfindingService.setPlanningExecutor(singleThread);
+        pathfindingService.setSpeculativeDrones(true);
+        pathfindingService.setParallelLegs(true);
+
+        try {
+            CalcDeliveryPathResponse response = pathfindingService.calcDeliveryPath(dispatches);
+
+            assertEquals(1, response.getDronePaths().size());
+            assertEquals("D001", response.getDronePaths().get(0).getDroneId());
+        } finally {
+            singleThread.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("calcDeliveryPath: Trace reports stages and every leg")
+    void testCalcDeliveryPath_trace_reportsStagesAndLegs() {
+        Drone drone = createTestDrone("D001", 20.0, 50000, true, true);
+        ServicePoint sp = createServicePoint("SP1", 1, EDINBURGH_LAT, EDINBURGH_LNG + 0.0032);
+        DroneForServicePointResponse assignment = createDroneAssignment(1, "D001");
+        RestrictedArea cup = createRestrictedArea("Cup", createCupZone(EDINBURGH_LAT, EDINBURGH_LNG + 0.002, 0.002));
+
+        when(externalAPIService.getAllDrones()).thenReturn(List.of(drone));
+        when(externalAPIService.getServicePoints()).thenReturn(List.of(sp));
+        when(externalAPIService.getDronesForServicePoints()).thenReturn(List.of(assignment));
+        when(externalAPIService.getRestrictedAreas()).thenReturn(List.of(cup));
+
+        MedDispatchRec dispatch = createDispatch(1, 5.0, false, false,
+                LocalDate.of(2025, 12, 22), LocalTime.of(14, 30), new Position(EDINBURGH_LAT, EDINBURGH_LNG + 0.006));
+
+        CalcDeliveryPathResponse traced = pathfindingService.calcDeliveryPath(List.of(dispatch), true);
+        CalcDeliveryPathResponse untraced = pathfindingService.calcDeliveryPath(List.of(dispatch));
+
+        assertNull(untraced.getTrace());
+        assertEquals(untraced.getDronePaths(), traced.getDronePaths());
+        PlanTrace trace = traced.getTrace();
+        assertNotNull(trace);
+        assertEquals(List.of("fetch", "filter", "plan", "total"), List.copyOf(trace.getStageMillis().keySet()));
+        assertEquals(2, trace.getLegsComputed());
+        assertEquals(trace.getLegs().stream().mapToLong(PlanTrace.LegTrace::getNodesExpanded).sum(), trace.getNodesExpanded());
+        int moves = 0;
+        for (PlanTrace.LegTrace leg : trace.getLegs()) {
+            assertEquals("D001", leg.getDroneId());
+            assertTrue(List.of("local", "astar", "greedy").contains(leg.getPlanner()));
+            moves += leg.getMoves();
+        }
+        // the delivery position is appended twice to the outbound leg to mark the drop-off
+        assertEquals(traced.getTotalMoves(), moves + 2);
+        assertTrue(trace.getRejectedRoutes().isEmpty());
+    }
+
+    @Test
+    @DisplayName("calcDeliveryPath: Trace reports routes rejected on cost")
+    void testCalcDeliveryPath_trace_reportsRejectedRoutes() {
+        setupBasicMocks();
+        MedDispatchRec dispatch = createDispatch(1, 5.0, false, false,
+                LocalDate.of(2025, 12, 22), LocalTime.of(14, 30), new Position(EDINBURGH_LAT + 0.01, EDINBURGH_LNG + 0.01));
+        dispatch.getRequirements().setMaxCost(0.01);
+
+        PlanTrace trace = pathfindingService.calcDeliveryPath(List.of(dispatch), true).getTrace();
+
+        assertEquals(1, trace.getRejectedRoutes().size());
+        PlanTrace.RejectedRoute rejected = trace.getRejectedRoutes().get(0);
+        assertEquals("D001", rejected.getDroneId());
+        assertEquals(List.of(1), rejected.getDispatchIds());
+        // even the straight line breaks the cap, so no leg is searched
+        assertEquals("max-cost-bound", rejected.getReason());
+        assertTrue(trace.getLegs().isEmpty());
+    }
+
+    @Test
+    @DisplayName("calcDeliveryPath: Legs that cannot fit maxMoves are rejected without a full search")
+    void testCalcDeliveryPath_moveBudget_rejectsRouteAroundZone() {
+        // the straight line fits in 60 moves but the way out of the cup does not
+        Drone drone = createTestDrone("D001", 20.0, 60, true, true);
+        ServicePoint sp = createServicePoint("SP1", 1, EDINBURGH_LAT, EDINBURGH_LNG + 0.0032);
+        DroneForServicePointResponse assignment = createDroneAssignment(1, "D001");
+        RestrictedArea cup = createRestrictedArea("Cup", createCupZone(EDINBURGH_LAT, EDINBURGH_LNG + 0.002, 0.002));
+
+        when(externalAPIService.getAllDrones()).thenReturn(List.of(drone));
+        when(externalAPIService.getServicePoints()).thenReturn(List.of(sp));
+        when(externalAPIService.getDronesForServicePoints()).thenReturn(List.of(assignment));
+        when(externalAPIService.getRestrictedAreas()).thenReturn(List.of(cup));
+
+        MedDispatchRec dispatch = createDispatch(1, 5.0, false, false,
+                LocalDate.of(2025, 12, 22), LocalTime.of(14, 30), new Position(EDINBURGH_LAT, EDINBURGH_LNG + 0.006));
+
+        CalcDeliveryPathResponse response = pathfindingService.calcDeliveryPath(List.of(dispatch), true);
+
+        assertTrue(response.getDronePaths().isEmpty());
+        PlanTrace trace = response.getTrace();
+        assertEquals("over-move-budget", trace.getRejectedRoutes().get(0).getReason());
+        for (PlanTrace.LegTrace leg : trace.getLegs()) {
+            assertEquals("over-budget", leg.getPlanner());
+            assertTrue(leg.getNodesExpanded() < 5000, "Search should stop well before the iteration limit");
+        }
+    }
+
+    @Test
+    @DisplayName("calcDeliveryPath: Routes whose way around a zone breaks maxCost are rejected before any search")
+    void testCalcDeliveryPath_costBound_rejectsRouteAroundZone() {
+        // the straight line costs about 5.6 but the way out of the cup costs at least 16
+        Drone drone = createTestDrone("D001", 20.0, 50000, true, true);
+        ServicePoint sp = createServicePoint("SP1", 1, EDINBURGH_LAT, EDINBURGH_LNG + 0.0032);
+        DroneForServicePointResponse assignment = createDroneAssignment(1, "D001");
+        RestrictedArea cup = createRestrictedArea("Cup", createCupZone(EDINBURGH_LAT, EDINBURGH_LNG + 0.002, 0.002));
+
+        when(externalAPIService.getAllDrones()).thenReturn(List.of(drone));
+        when(externalAPIService.getServicePoints()).thenReturn(List.of(sp));
+        when(externalAPIService.getDronesForServicePoints()).thenReturn(List.of(assignment));
+        when(externalAPIService.getRestrictedAreas()).thenReturn(List.of(cup));
+
+        MedDispatchRec dispatch = createDispatch(1, 5.0, false, false,
+                LocalDate.of(2025, 12, 22), LocalTime.of(14, 30), new Position(EDINBURGH_LAT, EDINBURGH_LNG + 0.006));
+        dispatch.getRequirements().setMaxCost(10.0);
+
+        CalcDeliveryPathResponse response = pathfindingService.calcDeliveryPath(List.of(dispatch), true);
+
+        assertTrue(response.getDronePaths().isEmpty());
+        PlanTrace trace = response.getTrace();
+        assertEquals(1, trace.getRejectedRoutes().size());
+        PlanTrace.RejectedRoute rejected = trace.getRejectedRoutes().get(0);
+        assertEquals("max-cost-bound", rejected.getReason());
+        assertTrue(rejected.getCost() > 10.0);
+        assertTrue(trace.getLegs().isEmpty());
+        assertEquals(0, trace.getNodesExpanded());
+    }
+
+    @Test
+    @DisplayName("calcDeliveryPath: Cheapest first tries the drone with the cheapest route before fleet order")
+    void testCalcDeliveryPath_cheapestFirst_prefersCheaperDrone() {
+        Drone expensive = createTestDrone("D001", 20.0, 5000, true, true);
+        expensive.getCapability().setCostPerMove(0.5);
+        Drone cheap = createTestDrone("D002", 20.0, 5000, true, true);
+        ServicePoint sp = createServicePoint("SP1", 1, EDINBURGH_LAT, EDINBURGH_LNG);
+        DroneForServicePointResponse assignment = createDroneAssignment(1, "D001", "D002");
+
+        when(externalAPIService.getAllDrones()).thenReturn(List.of(expensive, cheap));
+        when(externalAPIService.getServicePoints()).thenReturn(List.of(sp));
+        when(externalAPIService.getDronesForServicePoints()).thenReturn(List.of(assignment));
+        when(externalAPIService.getRestrictedAreas()).thenReturn(new ArrayList<>());
+
+        List<MedDispatchRec> dispatches = List.of(createDispatch(1, 5.0, false, false,
+                LocalDate.of(2025, 12, 22), LocalTime.of(14, 30), new Position(EDINBURGH_LAT + 0.001, EDINBURGH_LNG)));
+
+        CalcDeliveryPathResponse fleetOrder = pathfindingService.calcDeliveryPath(dispatches);
+        pathfindingService.setCheapestFirst(true);
+        CalcDeliveryPathResponse cheapestFirst = pathfindingService.calcDeliveryPath(dispatches);
+
+        assertEquals("D001", fleetOrder.getDronePaths().get(0).getDroneId());
+        assertEquals("D002", cheapestFirst.getDronePaths().get(0).getDroneId());
+        assertEquals(fleetOrder.getTotalMoves(), cheapestFirst.getTotalMoves());
+        assertTrue(cheapestFirst.getTotalCost() < fleetOrder.getTotalCost());
+    }
+
+    @Test
+    @DisplayName("calcDeliveryPath: Long dispatch lists build the same nearest neighbour route, ties in list order")
+    void testCalcDeliveryPath_manyDispatches_routeVisitsNearestFirst() {
+        setupBasicMocks();
+        // enough dispatches for the route builder to search a grid, further north for lower ids
+        List<MedDispatchRec> dispatches = new ArrayList<>();
+        Position nearestDelivery = new Position(EDINBURGH_LAT + 0.0005, EDINBURGH_LNG);
+        // same place as dispatch 40 but listed first, so it wins the tie
+        dispatches.add(createDispatch(41, 1.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(14, 30), nearestDelivery));
+        for (int id = 1; id <= 40; id++) {
+            dispatches.add(createDispatch(id, 1.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(14, 30),
+                    new Position(EDINBURGH_LAT + 0.0005 * (41 - id), EDINBURGH_LNG)));
+        }
+
+        CalcDeliveryPathResponse response = pathfindingService.calcDeliveryPath(dispatches);
+
+        assertEquals(1, response.getDronePaths().size());
+        List<Integer> route = response.getDronePaths().get(0).getDeliveries().stream()
+                .map(Delivery::getDeliveryId)
+                .toList();
+        assertEquals(Arrays.asList(41, 40, 39, null), route);
+    }
+
+    @Test
+    @DisplayName("calcDeliveryPath: Flight paths built for accepted routes match the moves they were checked on")
+    void testCalcDeliveryPath_materialisedPaths_matchCountedMoves() {
+        Drone drone = createTestDrone("D001", 20.0, 50000, true, true);
+        ServicePoint sp = createServicePoint("SP1", 1, EDINBURGH_LAT, EDINBURGH_LNG + 0.0032);
+        DroneForServicePointResponse assignment = createDroneAssignment(1, "D001");
+        RestrictedArea cup = createRestrictedArea("Cup", createCupZone(EDINBURGH_LAT, EDINBURGH_LNG + 0.002, 0.002));
+
+        when(externalAPIService.getAllDrones()).thenReturn(List.of(drone));
+        when(externalAPIService.getServicePoints()).thenReturn(List.of(sp));
+        when(externalAPIService.getDronesForServicePoints()).thenReturn(List.of(assignment));
+        when(externalAPIService.getRestrictedAreas()).thenReturn(List.of(cup));
+
+        Position delivery1 = new Position(EDINBURGH_LAT, EDINBURGH_LNG + 0.006);
+        Position delivery2 = new Position(EDINBURGH_LAT + 0.003, EDINBURGH_LNG + 0.001);
+        List<MedDispatchRec> dispatches = List.of(
+                createDispatch(1, 2.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(14, 30), delivery1),
+                createDispatch(2, 2.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(14, 30), delivery2));
+
+        CalcDeliveryPathResponse response = pathfindingService.calcDeliveryPath(dispatches, true);
+
+        assertEquals(1, response.getDronePaths().size());
+        List<Delivery> deliveries = response.getDronePaths().get(0).getDeliveries();
+        assertEquals(3, deliveries.size());
+        assertNull(deliveries.get(2).getDeliveryId());
+        List<PlanTrace.LegTrace> legs = response.getTrace().getLegs().stream()
+                .sorted(Comparator.comparing(PlanTrace.LegTrace::getIndex))
+                .toList();
+        assertEquals(deliveries.size(), legs.size());
+        int moves = 0;
+        Position previousEnd = sp.getLocation();
+        for (int i = 0; i < deliveries.size(); i++) {
+            List<Position> flightPath = deliveries.get(i).getFlightPath();
+            assertValidFlightPath(flightPath, cup);
+            // the replay holds the start, one position per counted move, and on delivery legs the drop-off marker twice
+            int markers = i < deliveries.size() - 1 ? 2 : 0;
+            assertEquals(legs.get(i).getMoves() + 1 + markers, flightPath.size());
+            // every leg starts exactly where the previous one stopped
+            assertEquals(previousEnd, flightPath.get(0));
+            previousEnd = flightPath.get(flightPath.size() - 1);
+            moves += flightPath.size() - 1;
+        }
+        assertTrue(distanceService.isCloseTo(previousEnd, sp.getLocation()));
+        assertEquals(response.getTotalMoves(), moves);
+    }
+
+    @Test
+    @DisplayName("calcDeliveryPath: Sortie scheduling flies dispatches at their times and reuses the drone")
+    void testCalcDeliveryPath_sortieScheduling_reusesDroneAcrossDay() {
+        setupBasicMocks();
+        List<MedDispatchRec> dispatches = List.of(
+                createDispatch(1, 2.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(9, 0),
+                        new Position(EDINBURGH_LAT + 0.001, EDINBURGH_LNG)),
+                createDispatch(2, 2.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(14, 0),
+                        new Position(EDINBURGH_LAT + 0.002, EDINBURGH_LNG)));
+
+        CalcDeliveryPathResponse together = pathfindingService.calcDeliveryPath(dispatches);
+        pathfindingService.setSortieScheduling(true);
+        CalcDeliveryPathResponse sorties = pathfindingService.calcDeliveryPath(dispatches);
+
+        assertEquals(1, together.getDronePaths().size());
+        // the second dispatch is not ready when the first sortie takes off, so the drone flies twice
+        assertEquals(2, sorties.getDronePaths().size());
+        for (int i = 0; i < 2; i++) {
+            DronePath sortie = sorties.getDronePaths().get(i);
+            assertEquals("D001", sortie.getDroneId());
+            assertEquals(i + 1, sortie.getDeliveries().get(0).getDeliveryId());
+        }
+    }
+
+    @Test
+    @DisplayName("calcDeliveryPath: Sortie scheduling rejects a sortie that would land after the slot ends")
+    void testCalcDeliveryPath_sortieScheduling_sortieMustFitSlot() {
+        setupBasicMocks();
+        // the drone is available until 18:00 and the round trip takes well over 30 seconds
+        MedDispatchRec dispatch = createDispatch(1, 2.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(17, 59, 30),
+                new Position(EDINBURGH_LAT + 0.01, EDINBURGH_LNG));
+
+        pathfindingService.setSortieScheduling(true);
+        CalcDeliveryPathResponse response = pathfindingService.calcDeliveryPath(List.of(dispatch), true);
+
+        assertTrue(response.getDronePaths().isEmpty());
+        assertEquals("outside-slot", response.getTrace().getRejectedRoutes().get(0).getReason());
+    }
+
+    @Test
+    @DisplayName("calcDeliveryPath: A sortie too long for the rest of the slot is retried with a route that fits")
+    void testCalcDeliveryPath_sortieScheduling_shorterRouteFitsSlot() {
+        setupBasicMocks();
+        // five minutes of the slot are left, enough for the near delivery but not for both
+        List<MedDispatchRec> dispatches = List.of(
+                createDispatch(1, 2.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(17, 55),
+                        new Position(EDINBURGH_LAT + 0.003, EDINBURGH_LNG)),
+                createDispatch(2, 2.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(17, 55),
+                        new Position(EDINBURGH_LAT + 0.04, EDINBURGH_LNG)));
+
+        pathfindingService.setSortieScheduling(true);
+        CalcDeliveryPathResponse response = pathfindingService.calcDeliveryPath(dispatches, true);
+
+        assertEquals(1, response.getDronePaths().size());
+        assertEquals("D001", response.getDronePaths().get(0).getDroneId());
+        List<Delivery> deliveries = response.getDronePaths().get(0).getDeliveries();
+        assertEquals(1, deliveries.stream().filter(d -> d.getDeliveryId() != null).count());
+        assertEquals(1, deliveries.get(0).getDeliveryId());
+        assertTrue(response.getTrace().getRejectedRoutes().stream().anyMatch(r -> r.getReason().equals("outside-slot")));
+    }
+
+    @Test
+    @DisplayName("calcDeliveryPath: A slot ending mid flight only rejects the drone when scheduling sorties")
+    void testCalcDeliveryPath_slotEndsBeforeLanding_onlySortiesReject() {
+        setupBasicMocks();
+        // the drone is available at 17:59:30 but its slot ends at 18:00, long before it could be back
+        MedDispatchRec dispatch = createDispatch(1, 2.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(17, 59, 30),
+                new Position(EDINBURGH_LAT + 0.01, EDINBURGH_LNG));
+
+        CalcDeliveryPathResponse atDispatchTime = pathfindingService.calcDeliveryPath(List.of(dispatch), true);
+        pathfindingService.setSortieScheduling(true);
+        CalcDeliveryPathResponse asSortie = pathfindingService.calcDeliveryPath(List.of(dispatch), true);
+
+        // the default planner only needs the drone available at the dispatch time
+        assertEquals(1, atDispatchTime.getDronePaths().size());
+        assertEquals("D001", atDispatchTime.getDronePaths().get(0).getDroneId());
+        assertTrue(atDispatchTime.getTrace().getRejectedRoutes().isEmpty());
+        // a sortie takes off no earlier than the dispatch time and has to land inside the slot
+        assertTrue(asSortie.getDronePaths().isEmpty());
+        assertEquals("outside-slot", asSortie.getTrace().getRejectedRoutes().get(0).getReason());
+    }
+
+    @Test
+    @DisplayName("calcDeliveryPath: Sortie scheduling plans several days as one timeline")
+    void testCalcDeliveryPath_sortieScheduling_acrossDays() {
+        setupBasicMocks();
+        List<MedDispatchRec> dispatches = List.of(
+                createDispatch(1, 2.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(9, 0),
+                        new Position(EDINBURGH_LAT + 0.001, EDINBURGH_LNG)),
+                createDispatch(2, 2.0, false, false, LocalDate.of(2025, 12, 23), LocalTime.of(9, 0),
+                        new Position(EDINBURGH_LAT + 0.002, EDINBURGH_LNG)));
+
+        pathfindingService.setSortieScheduling(true);
+        CalcDeliveryPathResponse response = pathfindingService.calcDeliveryPath(dispatches);
+
+        assertEquals(2, response.getDronePaths().size());
+        DronePath monday = response.getDronePaths().get(0);
+        DronePath tuesday = response.getDronePaths().get(1);
+        assertEquals(LocalDate.of(2025, 12, 22).atTime(9, 0), monday.getTakeOff());
+        assertEquals(LocalDate.of(2025, 12, 23).atTime(9, 0), tuesday.getTakeOff());
+        assertEquals(monday.getDroneId(), tuesday.getDroneId());
+        // one second per move by default
+        int mondayMoves = 0;
+        for (Delivery d : monday.getDeliveries()) {
+            mondayMoves += d.getFlightPath().size() - 1;
+        }
+        assertEquals(monday.getTakeOff().plusSeconds(mondayMoves), monday.getLanding());
+    }
+
+    @Test
+    @DisplayName("calcDeliveryPath: Sortie scheduling flies a dispatch without a date on the first day with a slot")
+    void testCalcDeliveryPath_sortieScheduling_flexibleDispatchMovesToFreeDay() {
+        setupBasicMocks();
+        // the drone has no weekend slots, the Saturday dispatch can't be flown but the flexible one waits for Monday
+        List<MedDispatchRec> dispatches = List.of(
+                createDispatch(1, 2.0, false, false, LocalDate.of(2025, 12, 27), LocalTime.of(9, 0),
+                        new Position(EDINBURGH_LAT + 0.001, EDINBURGH_LNG)),
+                createDispatch(2, 2.0, false, false, null, null,
+                        new Position(EDINBURGH_LAT + 0.002, EDINBURGH_LNG)));
+
+        pathfindingService.setSortieScheduling(true);
+        CalcDeliveryPathResponse response = pathfindingService.calcDeliveryPath(dispatches);
+
+        assertEquals(1, response.getDronePaths().size());
+        DronePath sortie = response.getDronePaths().get(0);
+        assertEquals(2, sortie.getDeliveries().get(0).getDeliveryId());
+        assertEquals(LocalDate.of(2025, 12, 29).atTime(8, 0), sortie.getTakeOff());
+    }
+
+    @Test
+    @DisplayName("calcDeliveryPath: Per endpoint limits cap deliveries per drone")
+    void testCalcDeliveryPath_endpointLimits_capDeliveriesPerDrone() {
+        setupBasicMocks();
+        List<MedDispatchRec> dispatches = List.of(
+                createDispatch(1, 2.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(14, 30),
+                        new Position(EDINBURGH_LAT + 0.001, EDINBURGH_LNG)),
+                createDispatch(2, 2.0, false, false, LocalDate.of(2025, 12, 22), LocalTime.of(14, 30),
+                        new Position(EDINBURGH_LAT + 0.002, EDINBURGH_LNG)));
+        PlanningProperties properties = new PlanningProperties();
+        PlanningProperties.Overrides overrides = new PlanningProperties.Overrides();
+        overrides.setMaxDeliveriesPerDrone(1);
+        properties.getEndpoints().put("calcDeliveryPath", overrides);
+
+        CalcDeliveryPathResponse unlimited = pathfindingService.calcDeliveryPath(dispatches);
+        pathfindingService.setPlanningProperties(properties);
+        CalcDeliveryPathResponse limited = pathfindingService.calcDeliveryPath(dispatches);
+
+        assertEquals(3, unlimited.getDronePaths().get(0).getDeliveries().size());
+        assertEquals(2, limited.getDronePaths().get(0).getDeliveries().size());
+    }
 }
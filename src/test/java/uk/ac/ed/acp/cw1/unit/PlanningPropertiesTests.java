@@ -0,0 +1,65 @@
+package uk.ac.ed.acp.cw1.unit;
+
+import org.junit.jupiter.api.Test;
+import uk.ac.ed.acp.cw1.configuration.PlanningProperties;
+import uk.ac.ed.acp.cw1.configuration.PlanningProperties.PlanningLimits;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlanningPropertiesTests {
+
+    @Test
+    public void testLimitsFor_noOverrides_returnsDefaults() {
+        PlanningLimits limits = new PlanningProperties().limitsFor("calcDeliveryPath");
+
+        assertEquals(50000, limits.astarMaxIterations());
+        assertEquals(10000, limits.greedyMaxSteps());
+        assertEquals(3, limits.maxDeliveriesPerDrone());
+        assertEquals(0.9, limits.moveSafetyFactor());
+    }
+
+    @Test
+    public void testLimitsFor_endpointOverride_onlyChangesThatEndpoint() {
+        PlanningProperties properties = new PlanningProperties();
+        PlanningProperties.Overrides overrides = new PlanningProperties.Overrides();
+        overrides.setAstarMaxIterations(200000);
+        overrides.setMaxDeliveriesPerDrone(5);
+        properties.getEndpoints().put("calcDeliveryPath", overrides);
+
+        PlanningLimits overridden = properties.limitsFor("calcDeliveryPath");
+        PlanningLimits other = properties.limitsFor("calcDeliveryPathAsGeoJson");
+
+        assertEquals(200000, overridden.astarMaxIterations());
+        assertEquals(5, overridden.maxDeliveriesPerDrone());
+        assertEquals(0.9, overridden.moveSafetyFactor());
+        assertEquals(50000, other.astarMaxIterations());
+        assertEquals(3, other.maxDeliveriesPerDrone());
+    }
+
+    @Test
+    public void testAstarIterationsFor_scalesWithMaxMovesWithinBounds() {
+        PlanningLimits limits = new PlanningProperties().limitsFor("calcDeliveryPath");
+
+        assertEquals(5000, limits.astarIterationsFor(50));
+        assertEquals(25000, limits.astarIterationsFor(500));
+        assertEquals(50000, limits.astarIterationsFor(2000));
+        assertEquals(50000, limits.astarIterationsFor(null));
+    }
+
+    @Test
+    public void testAstarIterationsFor_adaptiveDisabled_usesHardCap() {
+        PlanningProperties properties = new PlanningProperties();
+        properties.setAstarIterationsPerMove(0);
+
+        assertEquals(50000, properties.limitsFor("calcDeliveryPath").astarIterationsFor(50));
+    }
+
+    @Test
+    public void testGreedyStepsFor_capsJustPastMaxMoves() {
+        PlanningLimits limits = new PlanningProperties().limitsFor("calcDeliveryPath");
+
+        assertEquals(502, limits.greedyStepsFor(500));
+        assertEquals(10000, limits.greedyStepsFor(20000));
+        assertEquals(10000, limits.greedyStepsFor(null));
+    }
+}
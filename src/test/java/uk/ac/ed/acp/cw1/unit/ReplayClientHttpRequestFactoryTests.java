@@ -0,0 +1,67 @@
+package uk.ac.ed.acp.cw1.unit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.RestTemplate;
+import uk.ac.ed.acp.cw1.configuration.ReplayClientHttpRequestFactory;
+import uk.ac.ed.acp.cw1.dto.ServicePoint;
+import uk.ac.ed.acp.cw1.service.ExternalAPIService;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReplayClientHttpRequestFactoryTests {
+
+    @Test
+    public void testFileName_mapsPathToJsonFile() {
+        assertEquals("drones.json", ReplayClientHttpRequestFactory.fileName(URI.create("https://ilp.example.com/drones")));
+        assertEquals("drones-for-service-points.json",
+                ReplayClientHttpRequestFactory.fileName(URI.create("https://ilp.example.com/drones-for-service-points")));
+        assertEquals("api_drones.json", ReplayClientHttpRequestFactory.fileName(URI.create("https://ilp.example.com/api/drones/")));
+    }
+
+    @Test
+    public void testCreateRequest_recordedFile_servedAsBody(@TempDir Path replayDir) throws IOException {
+        Files.writeString(replayDir.resolve("restricted-areas.json"), "[]");
+        ReplayClientHttpRequestFactory factory = new ReplayClientHttpRequestFactory(replayDir);
+
+        try (ClientHttpResponse response = factory.createRequest(
+                URI.create("https://ilp.example.com/restricted-areas"), HttpMethod.GET).execute()) {
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            assertEquals("[]", new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testCreateRequest_missingFile_returns404(@TempDir Path replayDir) throws IOException {
+        ReplayClientHttpRequestFactory factory = new ReplayClientHttpRequestFactory(replayDir);
+
+        try (ClientHttpResponse response = factory.createRequest(
+                URI.create("https://ilp.example.com/drones"), HttpMethod.GET).execute()) {
+            assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        }
+    }
+
+    @Test
+    public void testExternalAPIService_replayDirectory_servesDataset(@TempDir Path replayDir) throws IOException {
+        Files.writeString(replayDir.resolve("service-points.json"),
+                "[{\"name\":\"Appleton Tower\",\"id\":1,\"location\":{\"lng\":-3.1863580788986368,\"lat\":55.94468066708487}}]");
+        ExternalAPIService externalAPIService = new ExternalAPIService(
+                new RestTemplate(new ReplayClientHttpRequestFactory(replayDir)), "https://offline.invalid");
+
+        List<ServicePoint> servicePoints = externalAPIService.getServicePoints();
+
+        assertEquals(1, servicePoints.size());
+        assertEquals("Appleton Tower", servicePoints.get(0).getName());
+        assertEquals(55.94468066708487, servicePoints.get(0).getLocation().getLat());
+    }
+}
@@ -0,0 +1,103 @@
+package uk.ac.ed.acp.cw1.unit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.ed.acp.cw1.dto.MedDispatchRec;
+import uk.ac.ed.acp.cw1.dto.Region;
+import uk.ac.ed.acp.cw1.dto.RestrictedArea;
+import uk.ac.ed.acp.cw1.load.RecordedRequest;
+import uk.ac.ed.acp.cw1.load.Scenario;
+import uk.ac.ed.acp.cw1.load.ScenarioGenerator;
+import uk.ac.ed.acp.cw1.load.ScenarioSettings;
+import uk.ac.ed.acp.cw1.service.DistanceService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScenarioGeneratorTests {
+
+    private final ScenarioGenerator generator = new ScenarioGenerator();
+    private final DistanceService distanceService = new DistanceService();
+
+    @Test
+    public void testGenerate_sameSettings_sameScenario() {
+        ScenarioSettings settings = ScenarioSettings.defaults();
+
+        assertEquals(generator.generate(settings), generator.generate(settings));
+        assertNotEquals(generator.generate(settings), generator.generate(settings.withSeed(7)));
+    }
+
+    @Test
+    public void testGenerate_sizesMatchSettings() {
+        Scenario scenario = generator.generate(ScenarioSettings.defaults()
+                .withDrones(12).withServicePoints(3).withRestrictedAreas(5).withPolygonVertices(9).withDispatches(30));
+
+        assertEquals(12, scenario.drones().size());
+        assertEquals(3, scenario.servicePoints().size());
+        assertEquals(12, scenario.assignments().stream().mapToInt(a -> a.getDrones().size()).sum());
+        assertEquals(5, scenario.restrictedAreas().size());
+        for (RestrictedArea area : scenario.restrictedAreas()) {
+            assertEquals(10, area.getVertices().size());
+            assertEquals(area.getVertices().get(0), area.getVertices().get(9));
+        }
+        assertEquals(30, scenario.dispatches().size());
+        assertTrue(scenario.dispatches().stream().allMatch(d ->
+                !d.getDate().isBefore(ScenarioGenerator.FIRST_DAY)
+                        && d.getDate().isBefore(ScenarioGenerator.FIRST_DAY.plusDays(7))));
+    }
+
+    @Test
+    public void testGenerate_axesIndependent() {
+        ScenarioSettings settings = ScenarioSettings.defaults();
+        Scenario base = generator.generate(settings);
+        Scenario moreDrones = generator.generate(settings.withDrones(40));
+        Scenario moreDispatches = generator.generate(settings.withDispatches(60));
+
+        assertEquals(base.drones(), moreDrones.drones().subList(0, base.drones().size()));
+        assertEquals(base.dispatches(), moreDrones.dispatches());
+        assertEquals(base.restrictedAreas(), moreDrones.restrictedAreas());
+        assertEquals(base.dispatches(), moreDispatches.dispatches().subList(0, base.dispatches().size()));
+        assertEquals(base.drones(), moreDispatches.drones());
+    }
+
+    @Test
+    public void testGenerate_nothingInsideRestrictedAreas() {
+        Scenario scenario = generator.generate(ScenarioSettings.defaults()
+                .withRestrictedAreas(20).withPolygonVertices(12).withDispatches(100));
+        List<Region> regions = scenario.restrictedAreas().stream()
+                .map(area -> new Region(area.getName(), area.getVertices()))
+                .toList();
+
+        for (Region region : regions) {
+            scenario.servicePoints().forEach(sp -> assertFalse(distanceService.isInRegion(sp.getLocation(), region)));
+            scenario.dispatches().forEach(d -> assertFalse(distanceService.isInRegion(d.getDelivery(), region)));
+        }
+    }
+
+    @Test
+    public void testWriteFixturesAndRequestLog_readBack(@TempDir Path directory) throws Exception {
+        Scenario scenario = generator.generate(ScenarioSettings.defaults());
+        scenario.writeFixtures(directory.resolve("upstream"));
+        scenario.writeRequestLog(directory.resolve("requests.jsonl"));
+
+        for (String file : List.of("drones.json", "service-points.json", "drones-for-service-points.json",
+                "restricted-areas.json")) {
+            assertTrue(Files.isRegularFile(directory.resolve("upstream").resolve(file)), file);
+        }
+        List<RecordedRequest> requests = RecordedRequest.readLog(directory.resolve("requests.jsonl"));
+        assertEquals(scenario.dispatchesByDate().size() * 2, requests.size());
+
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        int dispatches = 0;
+        for (RecordedRequest request : requests) {
+            if (request.endpoint().equals("calcDeliveryPath")) {
+                dispatches += mapper.readValue(request.body(), MedDispatchRec[].class).length;
+            }
+        }
+        assertEquals(scenario.dispatches().size(), dispatches);
+    }
+}
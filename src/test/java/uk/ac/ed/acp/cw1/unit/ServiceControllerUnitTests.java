@@ -322,6 +322,22 @@ public class ServiceControllerUnitTests {
     }
 
 
+    @Test
+    @DisplayName("calcDeliveryPath: Trace header asks for a traced plan")
+    void testCalcDeliveryPathWithTrace_headerValue_controlsTrace() {
+        List<MedDispatchRec> dispatches = List.of(new MedDispatchRec());
+        CalcDeliveryPathResponse traced = new CalcDeliveryPathResponse(10.0, 50, new ArrayList<>(), new PlanTrace());
+        CalcDeliveryPathResponse untraced = new CalcDeliveryPathResponse(10.0, 50, new ArrayList<>());
+
+        when(pathfindingService.calcDeliveryPath(dispatches, true)).thenReturn(traced);
+        when(pathfindingService.calcDeliveryPath(dispatches, false)).thenReturn(untraced);
+
+        assertEquals(traced, serviceController.calcDeliveryPathWithTrace(dispatches, "true").getBody());
+        assertEquals(traced, serviceController.calcDeliveryPathWithTrace(dispatches, "").getBody());
+        assertEquals(untraced, serviceController.calcDeliveryPathWithTrace(dispatches, "false").getBody());
+    }
+
+
     @Test
     @DisplayName("calcDeliveryPathAsGeoJson: Returns GeoJSON string")
     void testCalcDeliveryPathAsGeoJson_returnsGeoJson() {